@@ -0,0 +1,104 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.util.MimeTypeRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * File name and MIME type helpers, and the upload path from request stream to staging file
+ * (size check, SHA-256 and disk write) on a temporary directory.
+ */
+@State(Scope.Benchmark)
+public class FileServiceBenchmark {
+
+    private static final String[] FILE_NAMES = {
+            "holiday.JPG", "report.final.pdf", "archive.tar.gz", "notes", "song.mp3", "data.json", ".hidden"
+    };
+
+    @Param({"65536", "1048576", "16777216"})
+    public int uploadSize;
+
+    private FileService fileService;
+    private final MimeTypeRegistry mimeTypeRegistry = new MimeTypeRegistry();
+    private Path uploadDir;
+    private byte[] content;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // The helpers and the staging path need no repository, storage backend, transaction or derivatives
+        fileService = new FileService(null, null, null, new SimpleMeterRegistry(), null, null, null, null);
+        uploadDir = Files.createTempDirectory("plumeo-jmh");
+        setField(fileService, "uploadDir", uploadDir.toString());
+        setField(fileService, "maxFileSize", DataSize.ofGigabytes(1));
+
+        content = new byte[uploadSize];
+        new Random(42).nextBytes(content);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(uploadDir);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String getFileExtension() {
+        return fileService.getFileExtension(nextFileName());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String detectMimeType() {
+        return mimeTypeRegistry.detect(null, fileService.getFileExtension(nextFileName()), content);
+    }
+
+    /**
+     * Uploads per second for the current size; multiply by the size for the byte throughput.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public FileService.StoredContent storeUpload() throws IOException {
+        Path stagedFile = fileService.createStagingFile();
+        try {
+            return fileService.storeStream(new ByteArrayInputStream(content), stagedFile, Long.MAX_VALUE);
+        } finally {
+            Files.deleteIfExists(stagedFile);
+        }
+    }
+
+    private String nextFileName() {
+        String fileName = FILE_NAMES[next];
+        next = (next + 1) % FILE_NAMES.length;
+        return fileName;
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
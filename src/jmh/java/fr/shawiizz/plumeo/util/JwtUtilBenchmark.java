@@ -0,0 +1,75 @@
+package fr.shawiizz.plumeo.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token generation and verification, with the verified-token cache enabled or effectively disabled.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class JwtUtilBenchmark {
+
+    private static final int TOKEN_COUNT = 1024;
+
+    // 0 evicts every entry right away, so each verification checks the signature
+    @Param({"10000", "0"})
+    public long cacheMaxSize;
+
+    private JwtUtil jwtUtil;
+    private String[] tokens;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtUtil = new JwtUtil(new SimpleMeterRegistry());
+        setField(jwtUtil, "secret", "benchmarkSecretKey1234567890123456789012345678901234567890123456");
+        setField(jwtUtil, "expiration", TimeUnit.HOURS.toMillis(1));
+        setField(jwtUtil, "cacheMaxSize", cacheMaxSize);
+        jwtUtil.init();
+
+        tokens = new String[TOKEN_COUNT];
+        for (int i = 0; i < TOKEN_COUNT; i++) {
+            tokens[i] = jwtUtil.generateTokenWithUserId("user-" + i);
+        }
+    }
+
+    @Benchmark
+    public String generateTokenWithUserId() {
+        return jwtUtil.generateTokenWithUserId("user-1");
+    }
+
+    @Benchmark
+    public String extractUserId() {
+        return jwtUtil.extractUserId(nextToken());
+    }
+
+    @Benchmark
+    public Boolean validateTokenWithUserId() {
+        int index = next++ & (TOKEN_COUNT - 1);
+        return jwtUtil.validateTokenWithUserId(tokens[index], "user-" + index);
+    }
+
+    private String nextToken() {
+        return tokens[next++ & (TOKEN_COUNT - 1)];
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
@@ -0,0 +1,169 @@
+package fr.shawiizz.plumeo.websocket;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session registration and lookups under contention: a few threads connecting and
+ * disconnecting sessions of a small pool of users, as when clients reconnect in bursts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class WebSocketSessionManagerBenchmark {
+
+    private static final int USER_COUNT = 16;
+    private static final int SESSIONS_PER_THREAD = 64;
+
+    @State(Scope.Benchmark)
+    public static class Manager {
+        final WebSocketSessionManager sessionManager = new WebSocketSessionManager();
+        final String[] userIds = new String[USER_COUNT];
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            for (int i = 0; i < USER_COUNT; i++) {
+                userIds[i] = "user-" + i;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Sessions {
+        final WebSocketSession[] sessions = new WebSocketSession[SESSIONS_PER_THREAD];
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            for (int i = 0; i < SESSIONS_PER_THREAD; i++) {
+                sessions[i] = new StubSession(Thread.currentThread().threadId() + "-" + i);
+            }
+        }
+
+        WebSocketSession nextSession() {
+            WebSocketSession session = sessions[next];
+            next = (next + 1) % SESSIONS_PER_THREAD;
+            return session;
+        }
+    }
+
+    @Benchmark
+    public void connectAndDisconnect(Manager manager, Sessions sessions) {
+        WebSocketSession session = sessions.nextSession();
+        String userId = manager.userIds[ThreadLocalRandom.current().nextInt(USER_COUNT)];
+        manager.sessionManager.addSession(session, userId, "token");
+        manager.sessionManager.removeSession(session);
+    }
+
+    @Benchmark
+    public Set<WebSocketSession> getUserSessions(Manager manager) {
+        return manager.sessionManager.getUserSessions(manager.userIds[ThreadLocalRandom.current().nextInt(USER_COUNT)]);
+    }
+
+    /**
+     * Session with an id only, the manager never touches anything else.
+     */
+    private record StubSession(String id) implements WebSocketSession {
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public URI getUri() {
+            return null;
+        }
+
+        @Override
+        public HttpHeaders getHandshakeHeaders() {
+            return HttpHeaders.EMPTY;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return Map.of();
+        }
+
+        @Override
+        public Principal getPrincipal() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public String getAcceptedProtocol() {
+            return null;
+        }
+
+        @Override
+        public void setTextMessageSizeLimit(int messageSizeLimit) {
+        }
+
+        @Override
+        public int getTextMessageSizeLimit() {
+            return 0;
+        }
+
+        @Override
+        public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+        }
+
+        @Override
+        public int getBinaryMessageSizeLimit() {
+            return 0;
+        }
+
+        @Override
+        public List<WebSocketExtension> getExtensions() {
+            return List.of();
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) {
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void close(CloseStatus status) {
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package fr.shawiizz.plumeo.loadtest;
+
+import fr.shawiizz.plumeo.PlumeoApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * End-to-end load test: boots {@link PlumeoApplication} on a random port against an embedded
+ * PostgreSQL, runs the {@link LoadTestRunner} and reports latencies and throughput per operation.
+ * <p>
+ * Runs offline with {@code ./gradlew loadTest}, see {@link LoadTestSettings} for the parameters.
+ * The process exits with status 1 when the error rate is above {@code loadtest.max-error-rate}.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        Path workDir = Files.createTempDirectory("plumeo-loadtest");
+        boolean passed;
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder()
+                .setDataDirectory(workDir.resolve("pgdata"))
+                .setCleanDataDirectory(true)
+                .start();
+             ConfigurableApplicationContext application = startApplication(postgres, workDir.resolve("files"))) {
+
+            int port = ((WebServerApplicationContext) application).getWebServer().getPort();
+            LoadTestReport report = new LoadTestRunner(settings, URI.create("http://localhost:" + port)).run();
+
+            report.print(System.out);
+            report.write(Path.of(settings.report()));
+            passed = report.passed();
+        } finally {
+            FileSystemUtils.deleteRecursively(workDir);
+        }
+
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext startApplication(EmbeddedPostgres postgres, Path uploadDir) {
+        // Command-line arguments, so they win over application.properties
+        return SpringApplication.run(PlumeoApplication.class,
+                "--server.port=0",
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                "--spring.jpa.show-sql=false",
+                "--file.upload.dir=" + uploadDir,
+                "--logging.level.root=WARN");
+    }
+}
@@ -0,0 +1,102 @@
+package fr.shawiizz.plumeo.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latency percentiles and throughput per operation, printed as a table and written as JSON.
+ */
+public class LoadTestReport {
+
+    public record OperationResult(
+            String operation,
+            long count,
+            long errors,
+            @JsonProperty("throughput_per_s") double throughputPerSecond,
+            @JsonProperty("p50_ms") double p50Ms,
+            @JsonProperty("p99_ms") double p99Ms,
+            @JsonProperty("p999_ms") double p999Ms,
+            @JsonProperty("max_ms") double maxMs
+    ) {
+    }
+
+    public record Summary(
+            int clients,
+            @JsonProperty("duration_s") double durationSeconds,
+            @JsonProperty("upload_size") int uploadSize,
+            @JsonProperty("error_rate") double errorRate,
+            boolean passed,
+            List<OperationResult> operations
+    ) {
+    }
+
+    private final Summary summary;
+
+    public LoadTestReport(LoadTestSettings settings, Map<Operation, LatencySamples> samples) {
+        double seconds = settings.duration().toMillis() / 1000.0;
+        long requests = 0;
+        long errors = 0;
+
+        List<OperationResult> operations = new ArrayList<>();
+        for (Map.Entry<Operation, LatencySamples> entry : samples.entrySet()) {
+            LatencySamples operationSamples = entry.getValue();
+            if (operationSamples.getCount() == 0 && operationSamples.getErrors() == 0) {
+                continue;
+            }
+            long[] sorted = operationSamples.sorted();
+            operations.add(new OperationResult(
+                    entry.getKey().getLabel(),
+                    operationSamples.getCount(),
+                    operationSamples.getErrors(),
+                    // Connections are only opened once per client, a rate would be meaningless
+                    entry.getKey() == Operation.STOMP_CONNECT ? 0 : operationSamples.getCount() / seconds,
+                    toMillis(LatencySamples.percentile(sorted, 50)),
+                    toMillis(LatencySamples.percentile(sorted, 99)),
+                    toMillis(LatencySamples.percentile(sorted, 99.9)),
+                    toMillis(sorted.length > 0 ? sorted[sorted.length - 1] : 0)
+            ));
+            requests += operationSamples.getCount() + operationSamples.getErrors();
+            errors += operationSamples.getErrors();
+        }
+
+        double errorRate = requests > 0 ? (double) errors / requests : 0;
+        this.summary = new Summary(settings.clients(), seconds, settings.uploadSize(), errorRate,
+                requests > 0 && errorRate <= settings.maxErrorRate(), operations);
+    }
+
+    public boolean passed() {
+        return summary.passed();
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%n%-24s %10s %8s %12s %10s %10s %10s %10s%n",
+                "operation", "count", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (OperationResult result : summary.operations()) {
+            out.printf("%-24s %10d %8d %12.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    result.operation(), result.count(), result.errors(), result.throughputPerSecond(),
+                    result.p50Ms(), result.p99Ms(), result.p999Ms(), result.maxMs());
+        }
+        out.printf("%n%d clients, %.0f s recorded, error rate %.4f: %s%n",
+                summary.clients(), summary.durationSeconds(), summary.errorRate(), summary.passed() ? "PASSED" : "FAILED");
+    }
+
+    public void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), summary);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,178 @@
+package fr.shawiizz.plumeo.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drives the configured operation mix against a running instance, one virtual thread per client.
+ * Each client registers its own user and uploads a first file before the clock starts, then picks
+ * operations at random by weight until the warmup and recorded durations have elapsed.
+ * <p>
+ * A STOMP session dropped by the server is reopened before the next send. Failed reconnections are
+ * recorded as STOMP CONNECT errors and retried with an exponential backoff, sends failing meanwhile,
+ * so an overloaded server shows up in the report instead of ending the run.
+ */
+public class LoadTestRunner {
+    // Downloads pick among the latest uploads of the client
+    private static final int MAX_KNOWN_FILES = 32;
+
+    // Delay before retrying a failed STOMP reconnection, doubled after each failure
+    private static final Duration MIN_RECONNECT_DELAY = Duration.ofMillis(100);
+    private static final Duration MAX_RECONNECT_DELAY = Duration.ofSeconds(5);
+
+    private final LoadTestSettings settings;
+    private final URI baseUri;
+    private final HttpClient httpClient;
+    private final Operation[] weightedOperations;
+
+    public LoadTestRunner(LoadTestSettings settings, URI baseUri) {
+        this.settings = settings;
+        this.baseUri = baseUri;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        List<Operation> operations = new ArrayList<>();
+        settings.mix().forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                operations.add(operation);
+            }
+        });
+        this.weightedOperations = operations.toArray(Operation[]::new);
+    }
+
+    /**
+     * Run the load test.
+     *
+     * @return the merged samples of every client, per operation
+     */
+    public LoadTestReport run() throws InterruptedException {
+        long start = System.nanoTime();
+        long recordFrom = start + settings.warmup().toNanos();
+        long end = recordFrom + settings.duration().toNanos();
+
+        List<Future<Map<Operation, LatencySamples>>> results = new ArrayList<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < settings.clients(); i++) {
+                int clientId = i;
+                results.add(clients.submit(() -> runClient(clientId, recordFrom, end)));
+            }
+        }
+
+        Map<Operation, LatencySamples> merged = new EnumMap<>(Operation.class);
+        for (Future<Map<Operation, LatencySamples>> result : results) {
+            try {
+                result.get().forEach((operation, samples) ->
+                        merged.computeIfAbsent(operation, k -> new LatencySamples()).addAll(samples));
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Load-test client failed to start", e.getCause());
+            }
+        }
+        return new LoadTestReport(settings, merged);
+    }
+
+    private Map<Operation, LatencySamples> runClient(int clientId, long recordFrom, long end) throws Exception {
+        Map<Operation, LatencySamples> samples = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            samples.put(operation, new LatencySamples());
+        }
+
+        String runId = Long.toString(recordFrom, 36);
+        PlumeoClient client = new PlumeoClient(httpClient, baseUri,
+                "load-" + runId + "-" + clientId + "@plumeo.test", "load-test-password");
+        client.register("load" + clientId);
+
+        byte[] content = new byte[settings.uploadSize()];
+        ThreadLocalRandom.current().nextBytes(content);
+        List<String> fileIds = new ArrayList<>();
+        fileIds.add(client.upload(content));
+
+        long connectStart = System.nanoTime();
+        StompSession stomp = StompSession.connect(httpClient, baseUri, client.getToken());
+        samples.get(Operation.STOMP_CONNECT).record(System.nanoTime() - connectStart);
+
+        long reconnectAt = 0;
+        long reconnectDelay = MIN_RECONNECT_DELAY.toNanos();
+        try {
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                Operation operation = weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+                boolean recorded = now >= recordFrom;
+
+                if (operation == Operation.STOMP_SEND && stomp == null && now >= reconnectAt) {
+                    long reconnectStart = System.nanoTime();
+                    try {
+                        stomp = StompSession.connect(httpClient, baseUri, client.getToken());
+                        if (recorded) {
+                            samples.get(Operation.STOMP_CONNECT).record(System.nanoTime() - reconnectStart);
+                        }
+                        reconnectDelay = MIN_RECONNECT_DELAY.toNanos();
+                    } catch (IOException e) {
+                        if (recorded) {
+                            samples.get(Operation.STOMP_CONNECT).recordError();
+                        }
+                        // Jitter, so that clients dropped together do not all retry at once
+                        reconnectAt = System.nanoTime()
+                                + ThreadLocalRandom.current().nextLong(reconnectDelay / 2, reconnectDelay + 1);
+                        reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY.toNanos());
+                    }
+                }
+
+                long operationStart = System.nanoTime();
+                try {
+                    switch (operation) {
+                        case LOGIN -> client.login();
+                        case UPLOAD -> {
+                            String fileId = client.upload(content);
+                            if (fileIds.size() == MAX_KNOWN_FILES) {
+                                fileIds.remove(0);
+                            }
+                            fileIds.add(fileId);
+                        }
+                        case DOWNLOAD -> client.download(fileIds.get(ThreadLocalRandom.current().nextInt(fileIds.size())));
+                        case STOMP_SEND -> {
+                            if (stomp == null) {
+                                throw new IOException("STOMP session lost, waiting to reconnect");
+                            }
+                            stomp.send("/app/data", "load-test " + clientId);
+                        }
+                        default -> throw new IllegalStateException("Unexpected operation: " + operation);
+                    }
+                    if (recorded) {
+                        samples.get(operation).record(System.nanoTime() - operationStart);
+                    }
+                } catch (Exception e) {
+                    if (e instanceof InterruptedException) {
+                        throw e;
+                    }
+                    if (recorded) {
+                        samples.get(operation).recordError();
+                    }
+                    if (operation == Operation.STOMP_SEND && stomp != null) {
+                        // The server may have dropped the session, a new one is opened before the next send
+                        stomp.close();
+                        stomp = null;
+                    }
+                }
+            }
+        } finally {
+            if (stomp != null) {
+                stomp.close();
+            }
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,68 @@
+package fr.shawiizz.plumeo.loadtest;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Load-test parameters, read from {@code loadtest.*} system properties.
+ *
+ * @param clients      number of concurrent clients, each one a virtual thread with its own user
+ * @param warmup       time spent before recording, to let the JIT and connection pools settle
+ * @param duration     recorded time
+ * @param mix          relative weight of each operation; STOMP CONNECT is measured once per client,
+ *                     and again on each reconnection
+ * @param uploadSize   size of each uploaded file in bytes
+ * @param maxErrorRate error ratio above which the run fails
+ * @param report       path of the JSON report
+ */
+public record LoadTestSettings(
+        int clients,
+        Duration warmup,
+        Duration duration,
+        Map<Operation, Integer> mix,
+        int uploadSize,
+        double maxErrorRate,
+        String report
+) {
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                Integer.getInteger("loadtest.clients", 200),
+                Duration.parse(System.getProperty("loadtest.warmup", "PT15S")),
+                Duration.parse(System.getProperty("loadtest.duration", "PT60S")),
+                parseMix(System.getProperty("loadtest.mix", "login:1,upload:2,download:6,stomp:4")),
+                Integer.getInteger("loadtest.upload-size", 64 * 1024),
+                Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01")),
+                System.getProperty("loadtest.report", "build/reports/loadtest/results.json")
+        );
+    }
+
+    /**
+     * Parse a mix such as {@code login:1,upload:2,download:6,stomp:4}.
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + entry);
+            }
+            Operation operation = switch (parts[0].trim()) {
+                case "login" -> Operation.LOGIN;
+                case "upload" -> Operation.UPLOAD;
+                case "download" -> Operation.DOWNLOAD;
+                case "stomp" -> Operation.STOMP_SEND;
+                default -> throw new IllegalArgumentException("Unknown operation in mix: " + parts[0]);
+            };
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(operation, weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Empty operation mix: " + mix);
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,22 @@
+package fr.shawiizz.plumeo.loadtest;
+
+/**
+ * Requests issued by the load-test clients, reported separately.
+ */
+public enum Operation {
+    LOGIN("POST /api/auth/login"),
+    UPLOAD("POST /api/files/upload"),
+    DOWNLOAD("GET /api/files/{id}"),
+    STOMP_CONNECT("STOMP CONNECT /ws"),
+    STOMP_SEND("STOMP SEND /app/data");
+
+    private final String label;
+
+    Operation(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
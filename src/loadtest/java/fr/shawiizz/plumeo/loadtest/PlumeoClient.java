@@ -0,0 +1,110 @@
+package fr.shawiizz.plumeo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Minimal client of the REST API, one instance per simulated user.
+ */
+public class PlumeoClient {
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpClient httpClient;
+    private final URI baseUri;
+    private final String email;
+    private final String password;
+    private String token;
+
+    public PlumeoClient(HttpClient httpClient, URI baseUri, String email, String password) {
+        this.httpClient = httpClient;
+        this.baseUri = baseUri;
+        this.email = email;
+        this.password = password;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void register(String username) throws IOException, InterruptedException {
+        token = postJson("/api/auth/register", Map.of("username", username, "email", email, "password", password))
+                .get("token").asText();
+    }
+
+    public void login() throws IOException, InterruptedException {
+        token = postJson("/api/auth/login", Map.of("email", email, "password", password))
+                .get("token").asText();
+    }
+
+    /**
+     * Upload a file through the multipart endpoint.
+     *
+     * @return the id of the new file
+     */
+    public String upload(byte[] content) throws IOException, InterruptedException {
+        String boundary = "plumeo-" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(content.length + 256);
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"load.bin\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(content);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        HttpRequest request = authorized("/api/files/upload")
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        return readJson(request, response).get("id").asText();
+    }
+
+    /**
+     * Download a file, reading and discarding its content.
+     *
+     * @return the number of bytes received
+     */
+    public long download(String fileId) throws IOException, InterruptedException {
+        HttpRequest request = authorized("/api/files/" + fileId).GET().build();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            long received = body.transferTo(OutputStream.nullOutputStream());
+            checkStatus(request, response.statusCode());
+            return received;
+        }
+    }
+
+    private JsonNode postJson(String path, Object payload) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(payload)))
+                .build();
+        return readJson(request, httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray()));
+    }
+
+    private HttpRequest.Builder authorized(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).header("Authorization", "Bearer " + token);
+    }
+
+    private JsonNode readJson(HttpRequest request, HttpResponse<byte[]> response) throws IOException {
+        checkStatus(request, response.statusCode());
+        return JSON.readTree(response.body());
+    }
+
+    private static void checkStatus(HttpRequest request, int status) throws IOException {
+        if (status / 100 != 2) {
+            throw new IOException(request.method() + " " + request.uri().getPath() + " returned " + status);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package fr.shawiizz.plumeo.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Raw STOMP 1.2 session over the native {@code /ws} endpoint, just enough to connect and send frames.
+ */
+public class StompSession implements AutoCloseable {
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final WebSocket webSocket;
+    private final CompletableFuture<String> connected = new CompletableFuture<>();
+
+    private StompSession(HttpClient httpClient, URI wsUri) throws IOException, InterruptedException {
+        this.webSocket = await(httpClient.newWebSocketBuilder()
+                .connectTimeout(TIMEOUT)
+                .buildAsync(wsUri, new FrameListener()));
+    }
+
+    /**
+     * Open the WebSocket and wait for the CONNECTED frame.
+     */
+    public static StompSession connect(HttpClient httpClient, URI baseUri, String token) throws IOException, InterruptedException {
+        URI wsUri = URI.create(baseUri.toString().replaceFirst("^http", "ws") + "/ws?token=" + token);
+        StompSession session = new StompSession(httpClient, wsUri);
+        session.sendFrame("CONNECT\naccept-version:1.2\nhost:" + wsUri.getHost() + "\nheart-beat:0,0\n\n\0");
+
+        String frame = await(session.connected);
+        if (!frame.startsWith("CONNECTED")) {
+            session.close();
+            throw new IOException("STOMP connection refused: " + frame.lines().findFirst().orElse(""));
+        }
+        return session;
+    }
+
+    /**
+     * Send a message to an application destination. Completes once the frame is written,
+     * {@code /app/data} has no reply to wait for.
+     */
+    public void send(String destination, String body) throws IOException, InterruptedException {
+        sendFrame("SEND\ndestination:" + destination + "\ncontent-type:text/plain\n\n" + body + "\0");
+    }
+
+    private void sendFrame(String frame) throws IOException, InterruptedException {
+        await(webSocket.sendText(frame, true));
+    }
+
+    @Override
+    public void close() {
+        webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "").orTimeout(5, TimeUnit.SECONDS);
+    }
+
+    private static <T> T await(CompletionStage<T> stage) throws IOException, InterruptedException {
+        try {
+            return stage.toCompletableFuture().get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("STOMP operation timed out", e);
+        }
+    }
+
+    private final class FrameListener implements WebSocket.Listener {
+        private final StringBuilder frame = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            frame.append(data);
+            if (last) {
+                // Only the first frame matters, later ones (errors on send) just complete nothing
+                connected.complete(frame.toString());
+                frame.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            connected.completeExceptionally(new IOException("WebSocket closed: " + statusCode + " " + reason));
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            connected.completeExceptionally(error);
+        }
+    }
+}
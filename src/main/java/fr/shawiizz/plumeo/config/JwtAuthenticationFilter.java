@@ -1,12 +1,15 @@
 package fr.shawiizz.plumeo.config;
 
+import fr.shawiizz.plumeo.dto.UserPrincipal;
 import fr.shawiizz.plumeo.service.CustomUserDetailsService;
+import fr.shawiizz.plumeo.service.TokenRevocationService;
 import fr.shawiizz.plumeo.util.JwtUtil;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -22,6 +25,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final CustomUserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
+
+    /**
+     * When enabled, the principal is built from the token claims instead of loading the user row.
+     */
+    @Value("${jwt.stateless-principal:true}")
+    private boolean statelessPrincipal;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
@@ -36,7 +46,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
             jwtToken = requestTokenHeader.substring(7);
             try {
-                userId = jwtUtil.extractUserId(jwtToken);
+                // Verified once here, the validation below is served from the token cache
+                userId = jwtUtil.verifyToken(jwtToken).getSubject();
             } catch (Exception e) {
                 logger.error("Unable to get JWT Token", e);
             }
@@ -44,18 +55,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         // Once we get the token validate it
         if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userId);
 
             // if token is valid configure Spring Security to manually set authentication
             if (jwtUtil.validateTokenWithUserId(jwtToken, userId)) {
-                UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails, null, userDetails.getAuthorities());
-                usernamePasswordAuthenticationToken
-                        .setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
+                int tokenVersion = jwtUtil.extractTokenVersion(jwtToken);
+
+                if (tokenRevocationService.isRevoked(userId, tokenVersion)) {
+                    logger.debug("Rejected revoked JWT Token for user " + userId);
+                } else {
+                    UserDetails userDetails = statelessPrincipal
+                            ? new UserPrincipal(userId, tokenVersion)
+                            : this.userDetailsService.loadUserByUsername(userId);
+
+                    UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
+                            new UsernamePasswordAuthenticationToken(
+                                    userDetails, null, userDetails.getAuthorities());
+                    usernamePasswordAuthenticationToken
+                            .setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
+                }
             }
         }
         chain.doFilter(request, response);
     }
-}
\ No newline at end of file
+}
@@ -1,17 +1,28 @@
 package fr.shawiizz.plumeo.config;
 
+import fr.shawiizz.plumeo.monitoring.MeteredBCryptPasswordEncoder;
 import fr.shawiizz.plumeo.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.info.InfoEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -26,10 +37,19 @@ import java.util.List;
 public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final CustomUserDetailsService userDetailsService;
+    private final MeterRegistry meterRegistry;
+
+    // Credentials of the metrics scraper (HTTP Basic), actuator endpoints other than health and info
+    // are refused while no password is set
+    @Value("${monitoring.actuator.username:monitoring}")
+    private String actuatorUsername;
+
+    @Value("${monitoring.actuator.password:}")
+    private String actuatorPassword;
 
     @Bean
     public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new MeteredBCryptPasswordEncoder(meterRegistry);
     }
 
     @Bean
@@ -58,7 +78,42 @@ public class SecurityConfig {
         return source;
     }
 
+    /**
+     * Actuator endpoints, matched before the API chain. Health and info stay public for probes,
+     * the others require the monitoring credentials.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain managementFilterChain(HttpSecurity http) throws Exception {
+        http.securityMatcher(EndpointRequest.toAnyEndpoint())
+                .csrf(AbstractHttpConfigurer::disable)
+                .authorizeHttpRequests(authz -> {
+                    authz.requestMatchers(EndpointRequest.to(HealthEndpoint.class, InfoEndpoint.class)).permitAll();
+                    if (actuatorPassword.isBlank()) {
+                        authz.anyRequest().denyAll();
+                    } else {
+                        authz.anyRequest().hasRole("MONITORING");
+                    }
+                })
+                .httpBasic(Customizer.withDefaults())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
+
+        // Own authentication manager, so user accounts can never authenticate here
+        if (!actuatorPassword.isBlank()) {
+            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+            DaoAuthenticationProvider provider = new DaoAuthenticationProvider(new InMemoryUserDetailsManager(
+                    User.withUsername(actuatorUsername)
+                            .password(encoder.encode(actuatorPassword))
+                            .roles("MONITORING")
+                            .build()));
+            provider.setPasswordEncoder(encoder);
+            http.authenticationManager(new ProviderManager(provider));
+        }
+        return http.build();
+    }
+
     @Bean
+    @Order(2)
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
@@ -0,0 +1,33 @@
+package fr.shawiizz.plumeo.config;
+
+import fr.shawiizz.plumeo.monitoring.InstrumentedDataSource;
+import fr.shawiizz.plumeo.monitoring.SqlStatementStats;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the data source to record per-statement statistics, replacing SQL logging.
+ */
+@Configuration
+@ConditionalOnProperty(name = "monitoring.sql.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlMonitoringConfig {
+
+    // Static so the post-processor does not force the early creation of this configuration
+    @Bean
+    public static BeanPostProcessor instrumentedDataSourcePostProcessor(ObjectProvider<SqlStatementStats> stats) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof InstrumentedDataSource)) {
+                    return new InstrumentedDataSource(dataSource, stats.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
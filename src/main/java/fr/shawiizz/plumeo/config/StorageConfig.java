@@ -0,0 +1,58 @@
+package fr.shawiizz.plumeo.config;
+
+import fr.shawiizz.plumeo.storage.LocalStorageBackend;
+import fr.shawiizz.plumeo.storage.S3StorageBackend;
+import fr.shawiizz.plumeo.storage.ShardedStorageBackend;
+import fr.shawiizz.plumeo.storage.StorageBackend;
+import fr.shawiizz.plumeo.storage.StorageLayout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Selects the storage backend with the {@code storage.backend} property:
+ * {@code local} (default), {@code sharded} or {@code s3}.
+ */
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    public StorageLayout storageLayout(@Value("${storage.layout.fan-out-levels:2}") int levels,
+                                       @Value("${storage.layout.chars-per-level:2}") int charsPerLevel) {
+        return new StorageLayout(levels, charsPerLevel);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "local", matchIfMissing = true)
+    public StorageBackend localStorageBackend(@Value("${file.upload.dir:/app/plumeo}") String uploadDir) {
+        return new LocalStorageBackend(Paths.get(uploadDir));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "sharded")
+    public StorageBackend shardedStorageBackend(@Value("${storage.sharded.roots}") List<String> roots) {
+        List<Path> paths = roots.stream()
+                .map(String::trim)
+                .map(Paths::get)
+                .toList();
+        return new ShardedStorageBackend(paths);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+    public StorageBackend s3StorageBackend(@Value("${storage.s3.endpoint}") URI endpoint,
+                                           @Value("${storage.s3.region:us-east-1}") String region,
+                                           @Value("${storage.s3.bucket}") String bucket,
+                                           @Value("${storage.s3.access-key}") String accessKey,
+                                           @Value("${storage.s3.secret-key}") String secretKey,
+                                           @Value("${storage.s3.part-size:64MB}") DataSize partSize) {
+        return new S3StorageBackend(endpoint, region, bucket, accessKey, secretKey, partSize.toBytes());
+    }
+}
@@ -3,8 +3,11 @@ package fr.shawiizz.plumeo.config;
 import fr.shawiizz.plumeo.websocket.JwtWebSocketHandshakeInterceptor;
 import fr.shawiizz.plumeo.websocket.WebSocketSessionHandlerDecorator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
@@ -21,6 +24,12 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     private final JwtWebSocketHandshakeInterceptor jwtHandshakeInterceptor;
     private final WebSocketSessionHandlerDecorator sessionHandlerDecorator;
 
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${websocket.channel.max-concurrency:256}")
+    private int channelMaxConcurrency;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Enable simple message broker for basic client-server communication
@@ -49,4 +58,33 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // Add session handler decorator to manage session lifecycle
         registration.addDecoratorFactory(sessionHandlerDecorator);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        if (virtualThreads) {
+            registration.executor(virtualThreadExecutor("clientInboundChannel-"));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (virtualThreads) {
+            registration.executor(virtualThreadExecutor("clientOutboundChannel-"));
+        }
+    }
+
+    /**
+     * Channel executor running each message on a virtual thread. Handlers block on the database
+     * and on slow clients, so the pool is sized by the concurrency we accept, not by CPU count.
+     * It stays a {@link ThreadPoolTaskExecutor} to keep its queue depth observable.
+     */
+    private ThreadPoolTaskExecutor virtualThreadExecutor(String threadNamePrefix) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setVirtualThreads(true);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(channelMaxConcurrency);
+        executor.setMaxPoolSize(channelMaxConcurrency);
+        executor.setAllowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
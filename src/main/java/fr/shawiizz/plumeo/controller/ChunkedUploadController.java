@@ -0,0 +1,130 @@
+package fr.shawiizz.plumeo.controller;
+
+import fr.shawiizz.plumeo.annotation.Authenticated;
+import fr.shawiizz.plumeo.dto.request.CreateUploadSessionRequest;
+import fr.shawiizz.plumeo.dto.response.FileUploadResponse;
+import fr.shawiizz.plumeo.dto.response.UploadSessionResponse;
+import fr.shawiizz.plumeo.entity.User;
+import fr.shawiizz.plumeo.service.AuthenticationService;
+import fr.shawiizz.plumeo.service.ChunkedUploadService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/files/uploads")
+@RequiredArgsConstructor
+@Tag(name = "Resumable Uploads", description = "API for resumable chunked file uploads")
+@SecurityRequirement(name = "bearerAuth")
+public class ChunkedUploadController {
+
+    private final ChunkedUploadService chunkedUploadService;
+    private final AuthenticationService authenticationService;
+
+    @PostMapping
+    @Authenticated
+    @Operation(
+            summary = "Create an upload session",
+            description = "Start a resumable upload of a file of known size. Chunks are then sent to the session in any order."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Upload session created",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = UploadSessionResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Authentication required"),
+            @ApiResponse(responseCode = "413", description = "File too large"),
+            @ApiResponse(responseCode = "507", description = "Storage quota exceeded")
+    })
+    public ResponseEntity<UploadSessionResponse> createSession(@Valid @RequestBody CreateUploadSessionRequest request) {
+        User user = authenticationService.getCurrentUserReference();
+
+        return ResponseEntity.ok(chunkedUploadService.createSession(request, user));
+    }
+
+    @PutMapping("/{sessionId}/chunks")
+    @Authenticated
+    @Operation(
+            summary = "Upload a chunk",
+            description = "Write the raw request body at the given offset. Chunks can be sent in parallel and retried."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Chunk stored"),
+            @ApiResponse(responseCode = "400", description = "Invalid offset or chunk too large"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Authentication required")
+    })
+    public ResponseEntity<Void> uploadChunk(
+            @Parameter(description = "Upload session ID", required = true)
+            @PathVariable String sessionId,
+            @Parameter(description = "Position of the first byte of the chunk", required = true)
+            @RequestParam("offset") long offset,
+            HttpServletRequest request) throws IOException {
+        User user = authenticationService.getCurrentUserReference();
+
+        chunkedUploadService.writeChunk(sessionId, user, offset, request.getInputStream());
+
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/{sessionId}")
+    @Authenticated
+    @Operation(
+            summary = "Get upload session status",
+            description = "Get the byte ranges received so far, to resume an interrupted upload"
+    )
+    public ResponseEntity<UploadSessionResponse> getStatus(
+            @Parameter(description = "Upload session ID", required = true)
+            @PathVariable String sessionId) {
+        User user = authenticationService.getCurrentUserReference();
+
+        return ResponseEntity.ok(chunkedUploadService.getStatus(sessionId, user));
+    }
+
+    @PostMapping("/{sessionId}/complete")
+    @Authenticated
+    @Operation(
+            summary = "Complete an upload session",
+            description = "Turn a fully received upload session into a file"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "File created",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = FileUploadResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Upload not complete"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Authentication required"),
+            @ApiResponse(responseCode = "507", description = "Storage quota exceeded")
+    })
+    public ResponseEntity<FileUploadResponse> completeSession(
+            @Parameter(description = "Upload session ID", required = true)
+            @PathVariable String sessionId) {
+        User user = authenticationService.getCurrentUserReference();
+
+        return ResponseEntity.ok(chunkedUploadService.completeSession(sessionId, user));
+    }
+
+    @DeleteMapping("/{sessionId}")
+    @Authenticated
+    @Operation(
+            summary = "Abort an upload session",
+            description = "Discard an upload session and the data received so far"
+    )
+    public ResponseEntity<String> abortSession(
+            @Parameter(description = "Upload session ID", required = true)
+            @PathVariable String sessionId) {
+        User user = authenticationService.getCurrentUserReference();
+
+        chunkedUploadService.abortSession(sessionId, user);
+
+        return ResponseEntity.ok("Upload session aborted successfully");
+    }
+}
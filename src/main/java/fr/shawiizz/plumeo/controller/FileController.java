@@ -1,11 +1,19 @@
 package fr.shawiizz.plumeo.controller;
 
 import fr.shawiizz.plumeo.annotation.Authenticated;
+import fr.shawiizz.plumeo.dto.request.BulkFileRequest;
+import fr.shawiizz.plumeo.dto.response.BatchUploadResponse;
+import fr.shawiizz.plumeo.dto.response.BulkOperationResponse;
+import fr.shawiizz.plumeo.dto.response.FilePageResponse;
 import fr.shawiizz.plumeo.dto.response.FileUploadResponse;
 import fr.shawiizz.plumeo.entity.File;
 import fr.shawiizz.plumeo.entity.User;
+import fr.shawiizz.plumeo.exception.FileTooLargeException;
+import fr.shawiizz.plumeo.repository.FileRepositoryCustom.FileSelection;
 import fr.shawiizz.plumeo.service.AuthenticationService;
+import fr.shawiizz.plumeo.service.FileDownloadService;
 import fr.shawiizz.plumeo.service.FileService;
+import fr.shawiizz.plumeo.service.ThumbnailService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -14,19 +22,19 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/files")
@@ -36,8 +44,13 @@ import java.nio.file.Paths;
 @SecurityRequirement(name = "bearerAuth")
 public class FileController {
 
+    // Delay suggested to clients polling a thumbnail being generated
+    private static final String THUMBNAIL_RETRY_AFTER_SECONDS = "1";
+
     private final FileService fileService;
+    private final FileDownloadService fileDownloadService;
     private final AuthenticationService authenticationService;
+    private final ThumbnailService thumbnailService;
 
     @PostMapping("/upload")
     @Authenticated
@@ -51,6 +64,7 @@ public class FileController {
             @ApiResponse(responseCode = "400", description = "Invalid file or request parameters"),
             @ApiResponse(responseCode = "401", description = "Unauthorized - Authentication required"),
             @ApiResponse(responseCode = "413", description = "File too large"),
+            @ApiResponse(responseCode = "507", description = "Storage quota exceeded"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     public ResponseEntity<FileUploadResponse> uploadFile(
@@ -59,85 +73,215 @@ public class FileController {
             @Parameter(description = "Whether the file should be private (default: false)")
             @RequestParam(value = "isPrivate", required = false, defaultValue = "false") Boolean isPrivate) {
         
-        User user = authenticationService.getCurrentUserOrThrow();
+        User user = authenticationService.getCurrentUserReference();
         
         FileUploadResponse response = fileService.uploadFile(file, user, isPrivate);
         
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/upload/batch")
+    @Authenticated
+    @Operation(
+            summary = "Upload several files",
+            description = "Upload many files in a single multipart request, each as a 'files' part. Parts are stored in "
+                    + "parallel and registered in one transaction. Each part gets its own result: invalid parts are "
+                    + "reported as failed without preventing the others from being stored."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see the result of each file",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchUploadResponse.class))),
+            @ApiResponse(responseCode = "400", description = "No file, or too many files in the batch"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Authentication required"),
+            @ApiResponse(responseCode = "413", description = "Request too large"),
+            @ApiResponse(responseCode = "507", description = "Storage quota exceeded")
+    })
+    public ResponseEntity<BatchUploadResponse> uploadFiles(
+            @Parameter(description = "Files to upload", required = true)
+            @RequestParam("files") List<MultipartFile> files,
+            @Parameter(description = "Whether the files should be private (default: false)")
+            @RequestParam(value = "isPrivate", required = false, defaultValue = "false") Boolean isPrivate) {
+
+        User user = authenticationService.getCurrentUserReference();
+
+        BatchUploadResponse response = fileService.uploadBatch(files, user, isPrivate);
+
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/upload/stream")
+    @Authenticated
+    @Operation(
+            summary = "Upload a file as a raw stream",
+            description = "Upload a file sent as the raw request body. The content is streamed once to its final location, "
+                    + "without multipart buffering. The request Content-Type is used as the file MIME type."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "File uploaded successfully",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = FileUploadResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid file or request parameters"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Authentication required"),
+            @ApiResponse(responseCode = "413", description = "File too large"),
+            @ApiResponse(responseCode = "507", description = "Storage quota exceeded"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<FileUploadResponse> uploadFileStream(
+            @Parameter(description = "Original file name, including its extension", required = true)
+            @RequestParam("fileName") String fileName,
+            @Parameter(description = "Whether the file should be private (default: false)")
+            @RequestParam(value = "isPrivate", required = false, defaultValue = "false") Boolean isPrivate,
+            HttpServletRequest request) throws IOException {
+
+        // Refuse right away when the announced size already exceeds the limit
+        if (request.getContentLengthLong() > fileService.getMaxFileSize()) {
+            throw new FileTooLargeException();
+        }
+
+        User user = authenticationService.getCurrentUserReference();
+
+        FileUploadResponse response = fileService.uploadStream(
+                request.getInputStream(), fileName, request.getContentType(), user, isPrivate);
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping
+    @Authenticated
+    @Operation(
+            summary = "List files",
+            description = "List the files of the authenticated user, newest first. "
+                    + "Pass the returned next_cursor to get the following page."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Files retrieved successfully",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = FilePageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Authentication required")
+    })
+    public ResponseEntity<FilePageResponse> listFiles(
+            @Parameter(description = "Maximum number of files to return (default: 50, max: 200)")
+            @RequestParam(value = "limit", required = false, defaultValue = "50") int limit,
+            @Parameter(description = "Cursor of the page to get, as returned by the previous page")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "Only list private or public files")
+            @RequestParam(value = "isPrivate", required = false) Boolean isPrivate,
+            @Parameter(description = "Only list files with this MIME type")
+            @RequestParam(value = "mimeType", required = false) String mimeType,
+            @Parameter(description = "Only list files with this extension, without the dot")
+            @RequestParam(value = "extension", required = false) String extension) {
+
+        User user = authenticationService.getCurrentUserReference();
+
+        FilePageResponse response = fileService.listFiles(user, isPrivate, mimeType, extension, cursor, limit);
+
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/{fileId}")
     @Authenticated
     @Operation(
             summary = "Get file content",
-            description = "Get the binary content of a file owned by the authenticated user"
+            description = "Get the binary content of a file owned by the authenticated user. Supports byte ranges and conditional requests."
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "File content retrieved successfully"),
+            @ApiResponse(responseCode = "206", description = "Partial content for the requested ranges"),
+            @ApiResponse(responseCode = "304", description = "File not modified"),
             @ApiResponse(responseCode = "404", description = "File not found or access denied"),
-            @ApiResponse(responseCode = "401", description = "Unauthorized - Authentication required")
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Authentication required"),
+            @ApiResponse(responseCode = "416", description = "Requested range not satisfiable")
     })
-    public ResponseEntity<Resource> getFileContent(
+    public void getFileContent(
             @Parameter(description = "File ID", required = true)
-            @PathVariable String fileId) throws IOException {
+            @PathVariable String fileId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
         
-        User user = authenticationService.getCurrentUserOrThrow();
+        User user = authenticationService.getCurrentUserReference();
         
         File file = fileService.getFileByIdAndAuthor(fileId, user)
                 .orElseThrow(() -> new RuntimeException("File not found or access denied"));
-        
-        Resource resource = new FileSystemResource(file.getFilePath());
-        
-        if (!resource.exists()) {
-            throw new RuntimeException("File not found on disk");
-        }
-
-        String contentType = Files.probeContentType(Paths.get(file.getFilePath()));
-        if (contentType == null) {
-            contentType = file.getMimeType();
-        }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .body(resource);
+        fileDownloadService.streamFile(file, false, request, response);
     }
 
     @GetMapping("/{fileId}/download")
     @Authenticated
     @Operation(
             summary = "Download a file",
-            description = "Download a file owned by the authenticated user"
+            description = "Download a file owned by the authenticated user. Supports byte ranges and conditional requests."
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "File downloaded successfully"),
+            @ApiResponse(responseCode = "206", description = "Partial content for the requested ranges"),
+            @ApiResponse(responseCode = "304", description = "File not modified"),
             @ApiResponse(responseCode = "404", description = "File not found or access denied"),
-            @ApiResponse(responseCode = "401", description = "Unauthorized - Authentication required")
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Authentication required"),
+            @ApiResponse(responseCode = "416", description = "Requested range not satisfiable")
     })
-    public ResponseEntity<Resource> downloadFile(
+    public void downloadFile(
             @Parameter(description = "File ID", required = true)
-            @PathVariable String fileId) throws IOException {
+            @PathVariable String fileId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
         
-        User user = authenticationService.getCurrentUserOrThrow();
+        User user = authenticationService.getCurrentUserReference();
         
         File file = fileService.getFileByIdAndAuthor(fileId, user)
                 .orElseThrow(() -> new RuntimeException("File not found or access denied"));
-        
-        Resource resource = new FileSystemResource(file.getFilePath());
-        
-        if (!resource.exists()) {
-            throw new RuntimeException("File not found on disk");
+
+        fileDownloadService.streamFile(file, true, request, response);
+    }
+
+    @GetMapping("/{fileId}/thumbnail")
+    @Authenticated
+    @Operation(
+            summary = "Get an image thumbnail",
+            description = "Get a JPEG thumbnail of an image owned by the authenticated user, fitting in a square of the "
+                    + "requested size. The closest available size at least as large is returned. A thumbnail not generated yet "
+                    + "is queued and answered with 202 and a Retry-After header."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Thumbnail retrieved successfully"),
+            @ApiResponse(responseCode = "202", description = "Thumbnail being generated, retry later"),
+            @ApiResponse(responseCode = "304", description = "Thumbnail not modified"),
+            @ApiResponse(responseCode = "400", description = "The file is not a supported image"),
+            @ApiResponse(responseCode = "404", description = "File not found or access denied"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Authentication required")
+    })
+    public void getThumbnail(
+            @Parameter(description = "File ID", required = true)
+            @PathVariable String fileId,
+            @Parameter(description = "Maximum width and height in pixels (default: 256)")
+            @RequestParam(value = "size", required = false, defaultValue = "256") int size,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        User user = authenticationService.getCurrentUserReference();
+
+        File file = fileService.getFileByIdAndAuthor(fileId, user)
+                .orElseThrow(() -> new RuntimeException("File not found or access denied"));
+
+        int thumbnailSize = thumbnailService.resolveSize(size);
+        // The key, hence the ETag, only depends on the content: revalidations are answered without a storage lookup
+        String etag = thumbnailETag(thumbnailService.thumbnailKey(file, thumbnailSize));
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return;
         }
 
-        String contentType = Files.probeContentType(Paths.get(file.getFilePath()));
-        if (contentType == null) {
-            contentType = file.getMimeType();
+        Optional<String> key = thumbnailService.getThumbnail(file, thumbnailSize);
+        if (key.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_ACCEPTED);
+            response.setHeader(HttpHeaders.RETRY_AFTER, THUMBNAIL_RETRY_AFTER_SECONDS);
+            return;
         }
+        fileDownloadService.streamImmutableObject(key.get(), ThumbnailService.CONTENT_TYPE, thumbnailETag(key.get()),
+                request, response);
+    }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, 
-                        "attachment; filename=\"" + file.getOriginalFileName() + "\"")
-                .body(resource);
+    private static String thumbnailETag(String key) {
+        return "\"" + key.substring(key.lastIndexOf('/') + 1) + "\"";
     }
 
     @DeleteMapping("/{fileId}")
@@ -155,7 +299,7 @@ public class FileController {
             @Parameter(description = "File ID", required = true)
             @PathVariable String fileId) {
         
-        User user = authenticationService.getCurrentUserOrThrow();
+        User user = authenticationService.getCurrentUserReference();
         
         boolean deleted = fileService.deleteFile(fileId, user);
         
@@ -165,4 +309,55 @@ public class FileController {
             return ResponseEntity.notFound().build();
         }
     }
-}
\ No newline at end of file
+
+    @PostMapping("/bulk/delete")
+    @Authenticated
+    @Operation(
+            summary = "Delete several files",
+            description = "Delete the files of the authenticated user listed by ID, or else all those matching the "
+                    + "filters. Stored contents are removed in the background."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Files deleted, see the number of files affected",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkOperationResponse.class))),
+            @ApiResponse(responseCode = "400", description = "No ID nor filter, or too many IDs"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Authentication required")
+    })
+    public ResponseEntity<BulkOperationResponse> deleteFiles(@RequestBody BulkFileRequest request) {
+
+        User user = authenticationService.getCurrentUserReference();
+
+        int deleted = fileService.deleteFiles(user, toSelection(request));
+
+        return ResponseEntity.ok(new BulkOperationResponse(deleted));
+    }
+
+    @PatchMapping("/bulk/privacy")
+    @Authenticated
+    @Operation(
+            summary = "Change the privacy of several files",
+            description = "Make the files of the authenticated user listed by ID, or else all those matching the "
+                    + "filters, private or public in a single statement"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Privacy updated, see the number of files affected",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkOperationResponse.class))),
+            @ApiResponse(responseCode = "400", description = "No ID nor filter, or too many IDs"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized - Authentication required")
+    })
+    public ResponseEntity<BulkOperationResponse> updatePrivacy(
+            @Parameter(description = "Whether the files should become private", required = true)
+            @RequestParam("isPrivate") boolean isPrivate,
+            @RequestBody BulkFileRequest request) {
+
+        User user = authenticationService.getCurrentUserReference();
+
+        int updated = fileService.updatePrivacy(user, toSelection(request), isPrivate);
+
+        return ResponseEntity.ok(new BulkOperationResponse(updated));
+    }
+
+    private FileSelection toSelection(BulkFileRequest request) {
+        return new FileSelection(request.ids(), request.isPrivate(), request.mimeType(), request.extension());
+    }
+}
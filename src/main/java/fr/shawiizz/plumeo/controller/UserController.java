@@ -1,12 +1,18 @@
 package fr.shawiizz.plumeo.controller;
 
 import fr.shawiizz.plumeo.annotation.Authenticated;
-import fr.shawiizz.plumeo.entity.User;
+import fr.shawiizz.plumeo.dto.UserSnapshot;
+import fr.shawiizz.plumeo.dto.response.StorageUsageResponse;
+import fr.shawiizz.plumeo.repository.UserStorageUsageRepository.UsageTotals;
 import fr.shawiizz.plumeo.service.AuthenticationService;
+import fr.shawiizz.plumeo.service.StorageQuotaService;
+import fr.shawiizz.plumeo.service.TokenRevocationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -18,6 +24,8 @@ import java.util.Map;
 @Tag(name = "User", description = "API for user management")
 public class UserController {
     private final AuthenticationService authenticationService;
+    private final TokenRevocationService tokenRevocationService;
+    private final StorageQuotaService storageQuotaService;
 
     @GetMapping("/info")
     @Authenticated
@@ -26,14 +34,51 @@ public class UserController {
             description = "Get basic information about the currently authenticated user"
     )
     public Map<String, Object> getUserInfo() {
-        User user = authenticationService.getCurrentUserOrThrow();
+        UserSnapshot user = authenticationService.getCurrentUserOrThrow();
 
         return Map.of(
-                "id", user.getId(),
-                "username", user.getUsername(),
-                "email", user.getEmail(),
-                "createdAt", user.getCreatedAt(),
+                "id", user.id(),
+                "username", user.username(),
+                "email", user.email(),
+                "createdAt", user.createdAt(),
                 "message", "You are successfully authenticated!"
         );
     }
-}
\ No newline at end of file
+
+    @GetMapping("/storage")
+    @Authenticated
+    @Operation(
+            summary = "Get storage usage",
+            description = "Get the storage used by the currently authenticated user and their quota, "
+                    + "the quota being null when none is enforced"
+    )
+    public StorageUsageResponse getStorageUsage() {
+        String userId = authenticationService.getCurrentUserId()
+                .orElseThrow(() -> new RuntimeException("No authenticated user found"));
+
+        UsageTotals usage = storageQuotaService.getUsage(userId);
+        Long quota = storageQuotaService.getLimit();
+
+        return new StorageUsageResponse(
+                usage.usedBytes(),
+                usage.fileCount(),
+                quota,
+                quota != null ? Math.max(0, quota - usage.usedBytes()) : null
+        );
+    }
+
+    @PostMapping("/tokens/revoke")
+    @Authenticated
+    @Operation(
+            summary = "Revoke all tokens",
+            description = "Invalidate every JWT issued so far for the currently authenticated user"
+    )
+    public ResponseEntity<String> revokeTokens() {
+        String userId = authenticationService.getCurrentUserId()
+                .orElseThrow(() -> new RuntimeException("No authenticated user found"));
+
+        tokenRevocationService.revokeTokens(userId);
+
+        return ResponseEntity.ok("Tokens revoked successfully");
+    }
+}
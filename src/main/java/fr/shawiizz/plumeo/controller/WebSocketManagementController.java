@@ -33,7 +33,7 @@ public class WebSocketManagementController {
 
     @Operation(summary = "Check if a user has active WebSocket sessions")
     @GetMapping("/user/{userId}/status")
-    public ResponseEntity<Map<String, Object>> getUserStatus(@PathVariable Long userId) {
+    public ResponseEntity<Map<String, Object>> getUserStatus(@PathVariable String userId) {
         return ResponseEntity.ok(Map.of(
             "userId", userId,
             "sessionCount", sessionManager.getActiveSessionCount(userId),
@@ -43,7 +43,7 @@ public class WebSocketManagementController {
 
     @Operation(summary = "Get all active user IDs")
     @GetMapping("/users")
-    public ResponseEntity<Set<Long>> getActiveUsers() {
+    public ResponseEntity<Set<String>> getActiveUsers() {
         return ResponseEntity.ok(sessionManager.getActiveUsers());
     }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package fr.shawiizz.plumeo.dto;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lightweight principal built from verified JWT claims, without loading the user row.
+ * The username is the user ID, as with the principal built by CustomUserDetailsService.
+ */
+public record UserPrincipal(String id, int tokenVersion) implements UserDetails {
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of();
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return id;
+    }
+}
@@ -0,0 +1,25 @@
+package fr.shawiizz.plumeo.dto;
+
+import fr.shawiizz.plumeo.entity.User;
+
+import java.time.Instant;
+
+/**
+ * Immutable copy of the basic attributes of a {@link User}, safe to share between requests.
+ * Secrets and associations are left out: load the entity to read or change them.
+ */
+public record UserSnapshot(String id, String username, String email, String locale,
+                           Instant lastLogin, Instant createdAt, int tokenVersion) {
+
+    public static UserSnapshot of(User user) {
+        return new UserSnapshot(
+                user.getId(),
+                user.getUsername(),
+                user.getEmail(),
+                user.getLocale(),
+                user.getLastLogin(),
+                user.getCreatedAt(),
+                user.getTokenVersion()
+        );
+    }
+}
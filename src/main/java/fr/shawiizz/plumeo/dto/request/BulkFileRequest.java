@@ -0,0 +1,18 @@
+package fr.shawiizz.plumeo.dto.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public record BulkFileRequest(
+        List<String> ids,
+
+        @JsonProperty("is_private")
+        Boolean isPrivate,
+
+        @JsonProperty("mime_type")
+        String mimeType,
+
+        String extension
+) {
+}
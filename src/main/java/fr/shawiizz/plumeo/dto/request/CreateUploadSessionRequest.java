@@ -0,0 +1,24 @@
+package fr.shawiizz.plumeo.dto.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+public record CreateUploadSessionRequest(
+        @NotBlank(message = "File name is required")
+        @JsonProperty("file_name")
+        String fileName,
+
+        @NotNull(message = "Total size is required")
+        @Positive(message = "Total size must be positive")
+        @JsonProperty("total_size")
+        Long totalSize,
+
+        @JsonProperty("mime_type")
+        String mimeType,
+
+        @JsonProperty("is_private")
+        Boolean isPrivate
+) {
+}
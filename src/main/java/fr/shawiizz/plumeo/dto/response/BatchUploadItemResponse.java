@@ -0,0 +1,16 @@
+package fr.shawiizz.plumeo.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Outcome of one part of a batch upload: the stored file, or the reason it was rejected.
+ */
+public record BatchUploadItemResponse(
+        Integer index,
+        @JsonProperty("original_file_name")
+        String originalFileName,
+        Boolean success,
+        FileUploadResponse file,
+        String error
+) {
+}
@@ -0,0 +1,14 @@
+package fr.shawiizz.plumeo.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public record BatchUploadResponse(
+        List<BatchUploadItemResponse> files,
+        @JsonProperty("uploaded_count")
+        Integer uploadedCount,
+        @JsonProperty("failed_count")
+        Integer failedCount
+) {
+}
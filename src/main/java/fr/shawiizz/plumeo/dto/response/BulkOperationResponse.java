@@ -0,0 +1,9 @@
+package fr.shawiizz.plumeo.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record BulkOperationResponse(
+        @JsonProperty("affected_count")
+        Integer affectedCount
+) {
+}
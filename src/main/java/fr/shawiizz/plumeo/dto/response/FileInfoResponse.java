@@ -2,6 +2,8 @@ package fr.shawiizz.plumeo.dto.response;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.time.Instant;
+
 public record FileInfoResponse(
         String id,
         @JsonProperty("file_name") 
@@ -23,4 +25,14 @@ public record FileInfoResponse(
         @JsonProperty("updated_at") 
         Long updatedAt
 ) {
+
+    /**
+     * Used by JPQL constructor expressions, which select the raw timestamps.
+     */
+    public FileInfoResponse(String id, String fileName, String originalFileName, String fileExtension,
+                            String mimeType, Long fileSize, Boolean isPrivate, String authorId,
+                            Instant createdAt, Instant updatedAt) {
+        this(id, fileName, originalFileName, fileExtension, mimeType, fileSize, isPrivate, authorId,
+                createdAt.toEpochMilli(), updatedAt != null ? updatedAt.toEpochMilli() : null);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package fr.shawiizz.plumeo.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public record FilePageResponse(
+        List<FileInfoResponse> files,
+        @JsonProperty("next_cursor")
+        String nextCursor,
+        @JsonProperty("has_more")
+        Boolean hasMore
+) {
+}
@@ -0,0 +1,24 @@
+package fr.shawiizz.plumeo.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+
+public record SqlStatementStatsResponse(
+        String sql,
+        Long count,
+        Long rows,
+        @JsonProperty("total_ms")
+        Double totalMs,
+        @JsonProperty("mean_ms")
+        Double meanMs,
+        @JsonProperty("p50_ms")
+        Double p50Ms,
+        @JsonProperty("p99_ms")
+        Double p99Ms,
+        @JsonProperty("max_ms")
+        Double maxMs,
+        @JsonProperty("histogram_us")
+        Map<String, Long> histogramUs
+) {
+}
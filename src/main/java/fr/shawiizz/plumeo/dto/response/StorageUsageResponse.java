@@ -0,0 +1,15 @@
+package fr.shawiizz.plumeo.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record StorageUsageResponse(
+        @JsonProperty("used_bytes")
+        Long usedBytes,
+        @JsonProperty("file_count")
+        Long fileCount,
+        @JsonProperty("quota_bytes")
+        Long quotaBytes,
+        @JsonProperty("remaining_bytes")
+        Long remainingBytes
+) {
+}
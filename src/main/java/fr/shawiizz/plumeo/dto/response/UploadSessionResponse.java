@@ -0,0 +1,27 @@
+package fr.shawiizz.plumeo.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public record UploadSessionResponse(
+        String id,
+        @JsonProperty("original_file_name")
+        String originalFileName,
+        @JsonProperty("total_size")
+        Long totalSize,
+        @JsonProperty("received_bytes")
+        Long receivedBytes,
+        @JsonProperty("received_ranges")
+        List<Range> receivedRanges,
+        Boolean complete,
+        @JsonProperty("created_at")
+        Long createdAt
+) {
+
+    /**
+     * A received byte range, start inclusive and end exclusive.
+     */
+    public record Range(Long start, Long end) {
+    }
+}
@@ -0,0 +1,47 @@
+package fr.shawiizz.plumeo.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Content-addressed stored content, shared by every file with the same SHA-256.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "blobs")
+public class Blob {
+    @Id
+    @Column(name = "sha256", nullable = false, length = 64)
+    private String sha256;
+
+    @Column(name = "size", nullable = false)
+    private Long size;
+
+    @Column(name = "storage_path", nullable = false)
+    private String storagePath;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    // Unsigned 32-bit value, null for blobs stored before checksums were recorded
+    @Column(name = "crc32c")
+    private Long crc32c;
+
+    @Column(name = "verified_at")
+    private Instant verifiedAt;
+
+    // Set by the scrubber when the stored content no longer matches its checksums
+    @Column(name = "corrupted_at")
+    private Instant corruptedAt;
+
+    // Size of the gzip variant, -1 when not worth compressing, null when not compressed yet
+    @Column(name = "gzip_size")
+    private Long gzipSize;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt = Instant.now();
+}
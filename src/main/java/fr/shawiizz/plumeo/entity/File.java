@@ -1,8 +1,11 @@
 package fr.shawiizz.plumeo.entity;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Formula;
+import org.springframework.data.domain.Persistable;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -11,7 +14,7 @@ import java.util.UUID;
 @Getter
 @Setter
 @Table(name = "files")
-public class File {
+public class File implements Persistable<String> {
     @Id
     @Column(nullable = false)
     private String id = UUID.randomUUID().toString();
@@ -38,6 +41,13 @@ public class File {
     @Column(name = "file_size")
     private Long fileSize;
 
+    @Column(name = "checksum_sha256", length = 64)
+    private String checksumSha256;
+
+    // Gzip variant of the blob, loaded with the file so downloads need no second query
+    @Formula("(select b.gzip_size from blobs b where b.sha256 = checksum_sha256)")
+    private Long gzipSize;
+
     @Column(name = "is_private", nullable = false)
     private Boolean isPrivate = false;
 
@@ -47,6 +57,23 @@ public class File {
     @Column(name = "updated_at")
     private Instant updatedAt;
 
+    // IDs are assigned before saving: without this flag every save would select the row before inserting it
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean newEntity = true;
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    protected void markNotNew() {
+        newEntity = false;
+    }
+
     @PreUpdate
     protected void onUpdate() {
         updatedAt = Instant.now();
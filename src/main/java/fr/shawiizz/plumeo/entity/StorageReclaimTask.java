@@ -0,0 +1,32 @@
+package fr.shawiizz.plumeo.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A stored object waiting to be deleted, once nothing references it anymore.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "storage_reclaim_tasks")
+public class StorageReclaimTask {
+    @Id
+    @Column(name = "storage_key", nullable = false)
+    private String storageKey;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt = Instant.now();
+}
@@ -0,0 +1,33 @@
+package fr.shawiizz.plumeo.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A byte range received for an upload session. Chunks may overlap when a client retries.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "upload_session_chunks")
+public class UploadChunk {
+    @Id
+    @Column(nullable = false)
+    private String id = UUID.randomUUID().toString();
+
+    @Column(name = "session_id", nullable = false)
+    private String sessionId;
+
+    @Column(name = "chunk_offset", nullable = false)
+    private Long chunkOffset;
+
+    @Column(name = "chunk_length", nullable = false)
+    private Long chunkLength;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt = Instant.now();
+}
@@ -3,6 +3,7 @@ package fr.shawiizz.plumeo.entity;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.Instant;
 import java.util.LinkedHashSet;
@@ -54,4 +55,8 @@ public class User {
     @Column(name = "created_at")
     private Instant createdAt = Instant.now();
 
+    @ColumnDefault("0")
+    @Column(name = "token_version", nullable = false)
+    private Integer tokenVersion = 0;
+
 }
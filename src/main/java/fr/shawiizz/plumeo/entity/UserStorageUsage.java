@@ -0,0 +1,44 @@
+package fr.shawiizz.plumeo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * One stripe of the storage used by a user: stripe 0 holds the merged total, the others pending deltas.
+ */
+@Entity
+@Getter
+@Setter
+@IdClass(UserStorageUsage.Key.class)
+@Table(name = "user_storage_usage")
+public class UserStorageUsage {
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Id
+    @Column(name = "stripe", nullable = false)
+    private Short stripe;
+
+    @Column(name = "used_bytes", nullable = false)
+    private Long usedBytes;
+
+    @Column(name = "file_count", nullable = false)
+    private Long fileCount;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private String userId;
+        private Short stripe;
+    }
+}
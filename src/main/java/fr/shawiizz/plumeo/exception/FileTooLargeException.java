@@ -0,0 +1,11 @@
+package fr.shawiizz.plumeo.exception;
+
+/**
+ * Thrown when an uploaded file exceeds the maximum allowed size, answered with 413 Content Too Large.
+ */
+public class FileTooLargeException extends RuntimeException {
+
+    public FileTooLargeException() {
+        super("File size exceeds maximum allowed size");
+    }
+}
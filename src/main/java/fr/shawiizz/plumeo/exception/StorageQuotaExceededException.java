@@ -0,0 +1,11 @@
+package fr.shawiizz.plumeo.exception;
+
+/**
+ * Thrown when an upload does not fit in the storage quota of its author, answered with 507 Insufficient Storage.
+ */
+public class StorageQuotaExceededException extends RuntimeException {
+
+    public StorageQuotaExceededException() {
+        super("Storage quota exceeded");
+    }
+}
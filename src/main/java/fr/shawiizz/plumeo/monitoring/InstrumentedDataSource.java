@@ -0,0 +1,174 @@
+package fr.shawiizz.plumeo.monitoring;
+
+import fr.shawiizz.plumeo.monitoring.SqlStatementStats.ShapeStats;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Data source recording the latency and row count of every statement into {@link SqlStatementStats}.
+ * Connections, statements and result sets are wrapped in JDK proxies that only time the
+ * {@code execute*} calls and count {@link ResultSet#next()} hits; everything else is passed through.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+    private final SqlStatementStats stats;
+
+    public InstrumentedDataSource(DataSource targetDataSource, SqlStatementStats stats) {
+        super(targetDataSource);
+        this.stats = stats;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    private static <T> T wrap(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * Passes calls through to the target, with identity-based equality for the proxy itself.
+     */
+    private abstract static class DelegatingHandler implements InvocationHandler {
+        protected final Object target;
+
+        DelegatingHandler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public final Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+                return System.identityHashCode(proxy);
+            }
+            return handle(method, args);
+        }
+
+        abstract Object handle(Method method, Object[] args) throws Throwable;
+
+        Object delegate(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private final class ConnectionHandler extends DelegatingHandler {
+
+        ConnectionHandler(Connection target) {
+            super(target);
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = delegate(method, args);
+
+            if (result instanceof Statement statement) {
+                // Prepared statements have a single shape, plain ones get it from each execute call
+                ShapeStats shape = switch (method.getName()) {
+                    case "prepareStatement", "prepareCall" -> stats.forSql((String) args[0]);
+                    default -> null;
+                };
+                return wrap(method.getReturnType(), new StatementHandler(statement, shape));
+            }
+            return result;
+        }
+    }
+
+    private final class StatementHandler extends DelegatingHandler {
+        private final ShapeStats preparedShape;
+        private ShapeStats lastShape;
+
+        StatementHandler(Statement target, ShapeStats preparedShape) {
+            super(target);
+            this.preparedShape = preparedShape;
+            this.lastShape = preparedShape;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (name.startsWith("execute")) {
+                ShapeStats shape = preparedShape;
+                if (args != null && args.length > 0 && args[0] instanceof String sql) {
+                    shape = stats.forSql(sql);
+                }
+                lastShape = shape;
+
+                long start = System.nanoTime();
+                Object result = delegate(method, args);
+                if (shape != null) {
+                    stats.recordExecution(shape, System.nanoTime() - start);
+                    return countRows(shape, result);
+                }
+                return result;
+            }
+
+            Object result = delegate(method, args);
+            if (name.equals("getResultSet") && lastShape != null) {
+                return countRows(lastShape, result);
+            }
+            return result;
+        }
+
+        private Object countRows(ShapeStats shape, Object result) {
+            if (result instanceof ResultSet resultSet) {
+                return wrap(ResultSet.class, new ResultSetHandler(resultSet, shape));
+            }
+            // Update counts, negative values being "unknown" markers
+            if (result instanceof Integer updated) {
+                shape.addRows(Math.max(updated, 0));
+            } else if (result instanceof Long updated) {
+                shape.addRows(Math.max(updated, 0));
+            } else if (result instanceof int[] batch) {
+                for (int updated : batch) {
+                    shape.addRows(Math.max(updated, 0));
+                }
+            } else if (result instanceof long[] batch) {
+                for (long updated : batch) {
+                    shape.addRows(Math.max(updated, 0));
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class ResultSetHandler extends DelegatingHandler {
+        private final ShapeStats shape;
+
+        ResultSetHandler(ResultSet target, ShapeStats shape) {
+            super(target);
+            this.shape = shape;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = delegate(method, args);
+            if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                shape.addRows(1);
+            }
+            return result;
+        }
+    }
+}
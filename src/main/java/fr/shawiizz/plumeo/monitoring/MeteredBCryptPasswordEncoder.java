@@ -0,0 +1,38 @@
+package fr.shawiizz.plumeo.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * BCrypt encoder timing every hash, the most expensive step of registration and login.
+ */
+public class MeteredBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+
+    public MeteredBCryptPasswordEncoder(MeterRegistry meterRegistry) {
+        this.encodeTimer = Timer.builder("plumeo.password.hash")
+                .description("BCrypt hashing time")
+                .tag("operation", "encode")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("plumeo.password.hash")
+                .description("BCrypt hashing time")
+                .tag("operation", "matches")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return encodeTimer.record(() -> super.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        Boolean matches = matchesTimer.record(() -> super.matches(rawPassword, encodedPassword));
+        return Boolean.TRUE.equals(matches);
+    }
+}
@@ -0,0 +1,196 @@
+package fr.shawiizz.plumeo.monitoring;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Per-statement-shape execution statistics: latency histogram, row counts and slow query log.
+ * A shape is the SQL text with literals replaced by placeholders, so every execution of a
+ * repository method lands in the same entry whatever its parameters.
+ */
+@Component
+@Slf4j
+public class SqlStatementStats {
+
+    // Upper bounds of the latency buckets, in microseconds (the last bucket is unbounded)
+    private static final long[] BUCKET_BOUNDS_MICROS = {
+            100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000
+    };
+
+    private static final String OTHER_SHAPE = "<other>";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Map<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+
+    @Value("${monitoring.sql.slow-query-threshold:200ms}")
+    private Duration slowQueryThreshold;
+
+    @Value("${monitoring.sql.max-shapes:1000}")
+    private int maxShapes;
+
+    /**
+     * Get the statistics of the shape of the given SQL.
+     * Past {@code monitoring.sql.max-shapes} distinct shapes, new ones are grouped together.
+     */
+    public ShapeStats forSql(String sql) {
+        String shape = normalize(sql);
+        ShapeStats stats = shapes.get(shape);
+        if (stats != null) {
+            return stats;
+        }
+        if (shapes.size() >= maxShapes) {
+            return shapes.computeIfAbsent(OTHER_SHAPE, ShapeStats::new);
+        }
+        return shapes.computeIfAbsent(shape, ShapeStats::new);
+    }
+
+    /**
+     * Record one execution, logging it when it is slower than the threshold.
+     */
+    public void recordExecution(ShapeStats stats, long elapsedNanos) {
+        stats.record(elapsedNanos);
+        if (elapsedNanos >= slowQueryThreshold.toNanos()) {
+            log.warn("Slow SQL ({} ms): {}", elapsedNanos / 1_000_000, stats.getSql());
+        }
+    }
+
+    /**
+     * Get the statistics of every shape, the most expensive in total first.
+     */
+    public List<ShapeStats> getShapes() {
+        return shapes.values().stream()
+                .sorted(Comparator.comparingLong(ShapeStats::getTotalNanos).reversed())
+                .toList();
+    }
+
+    public void reset() {
+        shapes.clear();
+    }
+
+    static String normalize(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("in (?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    /**
+     * Lock-free counters of a statement shape.
+     */
+    public static final class ShapeStats {
+        private final String sql;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MICROS.length + 1];
+
+        ShapeStats(String sql) {
+            this.sql = sql;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long elapsedNanos) {
+            count.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulate(elapsedNanos);
+            buckets[bucketIndex(elapsedNanos / 1_000)].increment();
+        }
+
+        void addRows(long rowCount) {
+            rows.add(rowCount);
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        /**
+         * Get an upper bound of the given latency percentile from the histogram.
+         *
+         * @param percentile between 0 and 1
+         */
+        public long getPercentileNanos(double percentile) {
+            long[] counts = getBucketCounts();
+            long total = 0;
+            for (long bucketCount : counts) {
+                total += bucketCount;
+            }
+            long rank = (long) Math.ceil(percentile * total);
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= rank && cumulative > 0) {
+                    return i < BUCKET_BOUNDS_MICROS.length
+                            ? Math.min(BUCKET_BOUNDS_MICROS[i] * 1_000, getMaxNanos())
+                            : getMaxNanos();
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Get the execution count of each latency bucket, keyed by upper bound in microseconds.
+         */
+        public Map<String, Long> getHistogram() {
+            long[] counts = getBucketCounts();
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < counts.length; i++) {
+                String bound = i < BUCKET_BOUNDS_MICROS.length ? "le_" + BUCKET_BOUNDS_MICROS[i] + "us" : "inf";
+                histogram.put(bound, counts[i]);
+            }
+            return histogram;
+        }
+
+        private long[] getBucketCounts() {
+            long[] counts = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+            }
+            return counts;
+        }
+
+        private static int bucketIndex(long elapsedMicros) {
+            for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+                if (elapsedMicros <= BUCKET_BOUNDS_MICROS[i]) {
+                    return i;
+                }
+            }
+            return BUCKET_BOUNDS_MICROS.length;
+        }
+    }
+}
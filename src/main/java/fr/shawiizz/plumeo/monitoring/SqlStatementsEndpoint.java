@@ -0,0 +1,56 @@
+package fr.shawiizz.plumeo.monitoring;
+
+import fr.shawiizz.plumeo.dto.response.SqlStatementStatsResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint exposing the {@link SqlStatementStats} at /actuator/sqlstatements.
+ * Statements and their shapes reveal the schema and the access patterns, so it is served
+ * behind the monitoring credentials like the other actuator endpoints.
+ */
+@Component
+@Endpoint(id = "sqlstatements")
+@RequiredArgsConstructor
+public class SqlStatementsEndpoint {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final int DEFAULT_LIMIT = 50;
+
+    private final SqlStatementStats sqlStatementStats;
+
+    /**
+     * Latency and row counts per statement shape since startup or the last reset, most expensive first.
+     */
+    @ReadOperation
+    public List<SqlStatementStatsResponse> statements(@Nullable Integer limit) {
+        return sqlStatementStats.getShapes().stream()
+                .limit(Math.max(limit != null ? limit : DEFAULT_LIMIT, 0))
+                .map(shape -> new SqlStatementStatsResponse(
+                        shape.getSql(),
+                        shape.getCount(),
+                        shape.getRows(),
+                        shape.getTotalNanos() / NANOS_PER_MILLI,
+                        shape.getCount() > 0 ? shape.getTotalNanos() / NANOS_PER_MILLI / shape.getCount() : 0.0,
+                        shape.getPercentileNanos(0.50) / NANOS_PER_MILLI,
+                        shape.getPercentileNanos(0.99) / NANOS_PER_MILLI,
+                        shape.getMaxNanos() / NANOS_PER_MILLI,
+                        shape.getHistogram()
+                ))
+                .toList();
+    }
+
+    /**
+     * Reset the statistics.
+     */
+    @DeleteOperation
+    public void reset() {
+        sqlStatementStats.reset();
+    }
+}
@@ -0,0 +1,92 @@
+package fr.shawiizz.plumeo.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads pinned to their carrier thread, from the JFR {@code jdk.VirtualThreadPinned}
+ * event. A pinned thread blocks its carrier while it waits, typically in native code or in a
+ * driver holding a monitor, so a few of them can starve every other virtual thread.
+ * <p>
+ * Every pin longer than the threshold is timed; the stack is logged once per distinct location.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class VirtualThreadPinningMonitor {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 12;
+    private static final int MAX_LOGGED_LOCATIONS = 1000;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${monitoring.virtual-threads.pinned-threshold:20ms}")
+    private Duration threshold;
+
+    private final Set<String> loggedLocations = ConcurrentHashMap.newKeySet();
+    private Timer pinnedTimer;
+    private RecordingStream recordingStream;
+
+    @PostConstruct
+    void start() {
+        pinnedTimer = Timer.builder("plumeo.virtual-threads.pinned")
+                .description("Time virtual threads stayed pinned to their carrier thread")
+                .register(meterRegistry);
+
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+        log.info("Reporting virtual threads pinned for more than {} ms", threshold.toMillis());
+    }
+
+    @PreDestroy
+    void stop() {
+        recordingStream.close();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedTimer.record(event.getDuration());
+
+        String stack = formatStack(event.getStackTrace());
+        if (loggedLocations.size() < MAX_LOGGED_LOCATIONS && loggedLocations.add(stack)) {
+            // Since JDK 24 the event also says why the thread could not unmount
+            String reason = event.hasField("pinnedReason") ? event.getString("pinnedReason") : "unknown";
+            log.warn("Virtual thread {} pinned for {} ms ({}):\n{}",
+                    event.getThread() != null ? event.getThread().getJavaName() : "?",
+                    event.getDuration().toMillis(), reason, stack);
+        }
+    }
+
+    private static String formatStack(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "\tno stack trace";
+        }
+        return stackTrace.getFrames().stream()
+                .limit(LOGGED_FRAMES)
+                .map(VirtualThreadPinningMonitor::formatFrame)
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static String formatFrame(RecordedFrame frame) {
+        return "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + (frame.getLineNumber() > 0 ? ":" + frame.getLineNumber() : "");
+    }
+}
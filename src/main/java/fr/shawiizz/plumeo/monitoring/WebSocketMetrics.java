@@ -0,0 +1,55 @@
+package fr.shawiizz.plumeo.monitoring;
+
+import fr.shawiizz.plumeo.websocket.WebSocketSessionManager;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Active STOMP sessions and the backlog of the inbound and outbound message channels.
+ * A growing outbound queue means clients are not reading fast enough.
+ * <p>
+ * The channel executors are declared as plain {@link Executor}s: queue depths are only
+ * reported for the {@link ThreadPoolTaskExecutor}s set up by the WebSocket configuration.
+ */
+@Component
+public class WebSocketMetrics implements MeterBinder {
+
+    private final WebSocketSessionManager sessionManager;
+    private final Executor inboundExecutor;
+    private final Executor outboundExecutor;
+
+    public WebSocketMetrics(WebSocketSessionManager sessionManager,
+                            @Qualifier("clientInboundChannelExecutor") Executor inboundExecutor,
+                            @Qualifier("clientOutboundChannelExecutor") Executor outboundExecutor) {
+        this.sessionManager = sessionManager;
+        this.inboundExecutor = inboundExecutor;
+        this.outboundExecutor = outboundExecutor;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("plumeo.websocket.sessions", sessionManager, WebSocketSessionManager::getTotalActiveSessionCount)
+                .description("Active STOMP sessions")
+                .register(registry);
+        Gauge.builder("plumeo.websocket.users", sessionManager, manager -> manager.getActiveUsers().size())
+                .description("Users with at least one active STOMP session")
+                .register(registry);
+        bindQueueDepth(registry, inboundExecutor, "inbound");
+        bindQueueDepth(registry, outboundExecutor, "outbound");
+    }
+
+    private static void bindQueueDepth(MeterRegistry registry, Executor executor, String channel) {
+        if (executor instanceof ThreadPoolTaskExecutor taskExecutor) {
+            Gauge.builder("plumeo.websocket.queue.depth", taskExecutor, ThreadPoolTaskExecutor::getQueueSize)
+                    .description("Messages waiting in the channel executor queue")
+                    .tag("channel", channel)
+                    .register(registry);
+        }
+    }
+}
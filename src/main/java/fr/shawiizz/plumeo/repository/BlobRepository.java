@@ -0,0 +1,91 @@
+package fr.shawiizz.plumeo.repository;
+
+import fr.shawiizz.plumeo.entity.Blob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BlobRepository extends JpaRepository<Blob, String> {
+
+    /**
+     * Create the blob with a single reference, or add a reference to the existing one.
+     * Blobs stored before checksums were recorded get their CRC32C from the new upload.
+     * The row stays locked until the end of the transaction.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO blobs (sha256, size, storage_path, ref_count, crc32c, created_at)
+            VALUES (:sha256, :size, :storagePath, 1, :crc32c, now())
+            ON CONFLICT (sha256) DO UPDATE SET ref_count = blobs.ref_count + 1,
+                crc32c = COALESCE(blobs.crc32c, EXCLUDED.crc32c)
+            """, nativeQuery = true)
+    int acquire(@Param("sha256") String sha256, @Param("size") long size, @Param("storagePath") String storagePath,
+                @Param("crc32c") long crc32c);
+
+    @Query("select b.storagePath from Blob b where b.sha256 = :sha256")
+    String findStoragePath(@Param("sha256") String sha256);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Blob b where b.sha256 = :sha256")
+    Optional<Blob> findForUpdate(@Param("sha256") String sha256);
+
+    /**
+     * Lock several blobs, in SHA-256 order so that concurrent bulk deletions cannot deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Blob b where b.sha256 in :sha256s order by b.sha256")
+    List<Blob> findAllForUpdate(@Param("sha256s") Collection<String> sha256s);
+
+    List<Blob> findBySha256GreaterThanOrderBySha256Asc(String sha256, Limit limit);
+
+    /**
+     * Record a successful verification, unless the blob moved or was deleted meanwhile.
+     */
+    @Modifying
+    @Query("""
+            update Blob b set b.verifiedAt = :verifiedAt, b.crc32c = :crc32c, b.corruptedAt = null
+            where b.sha256 = :sha256 and b.storagePath = :storagePath
+            """)
+    int markVerified(@Param("sha256") String sha256, @Param("storagePath") String storagePath,
+                     @Param("crc32c") long crc32c, @Param("verifiedAt") Instant verifiedAt);
+
+    /**
+     * Flag stored content that no longer matches its checksums, unless the blob moved or was deleted meanwhile.
+     */
+    @Modifying
+    @Query("""
+            update Blob b set b.verifiedAt = :verifiedAt, b.corruptedAt = :verifiedAt
+            where b.sha256 = :sha256 and b.storagePath = :storagePath
+            """)
+    int markCorrupted(@Param("sha256") String sha256, @Param("storagePath") String storagePath,
+                      @Param("verifiedAt") Instant verifiedAt);
+
+    long countByCorruptedAtIsNotNull();
+
+    @Query("select b.gzipSize from Blob b where b.sha256 = :sha256 and b.gzipSize is not null")
+    Optional<Long> findGzipSize(@Param("sha256") String sha256);
+
+    /**
+     * Record the size of the gzip variant, or that there is none, once per blob.
+     */
+    @Modifying
+    @Query("update Blob b set b.gzipSize = :gzipSize where b.sha256 = :sha256 and b.gzipSize is null")
+    int updateGzipSize(@Param("sha256") String sha256, @Param("gzipSize") long gzipSize);
+
+    @Query("select coalesce(sum(b.size), 0) from Blob b")
+    long sumPhysicalSize();
+
+    @Query("select coalesce(sum(b.size * b.refCount), 0) from Blob b")
+    long sumLogicalSize();
+}
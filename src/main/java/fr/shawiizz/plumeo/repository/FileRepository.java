@@ -2,16 +2,21 @@ package fr.shawiizz.plumeo.repository;
 
 import fr.shawiizz.plumeo.entity.File;
 import fr.shawiizz.plumeo.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface FileRepository extends JpaRepository<File, String> {
+public interface FileRepository extends JpaRepository<File, String>, FileRepositoryCustom {
     
     List<File> findByAuthor(User author);
     
@@ -22,4 +27,27 @@ public interface FileRepository extends JpaRepository<File, String> {
     Optional<File> findByIdAndAuthor(String id, User author);
     
     boolean existsByIdAndAuthor(String id, User author);
+
+    /**
+     * Get the next files stored outside the blob store, in ID order.
+     */
+    List<File> findByChecksumSha256IsNullAndIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    @Modifying
+    @Query("delete from File f where f.author = :author and f.id in :ids")
+    int deleteByAuthorAndIdIn(@Param("author") User author, @Param("ids") Collection<String> ids);
+
+    /**
+     * Point every file referencing a storage key to a new one.
+     */
+    @Modifying
+    @Query("update File f set f.filePath = :newPath where f.filePath = :oldPath")
+    int updateFilePath(@Param("oldPath") String oldPath, @Param("newPath") String newPath);
+
+    /**
+     * Point a file to a new storage key, unless it changed or was deleted meanwhile.
+     */
+    @Modifying
+    @Query("update File f set f.filePath = :newPath where f.id = :id and f.filePath = :oldPath")
+    int updateFilePath(@Param("id") String id, @Param("oldPath") String oldPath, @Param("newPath") String newPath);
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package fr.shawiizz.plumeo.repository;
+
+import fr.shawiizz.plumeo.dto.response.FileInfoResponse;
+import fr.shawiizz.plumeo.entity.User;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface FileRepositoryCustom {
+
+    /**
+     * List files newest first with keyset pagination on (createdAt, id), projected
+     * straight to DTOs. Null filters are ignored.
+     *
+     * @param afterCreatedAt creation date of the last file of the previous page, or null for the first page
+     * @param afterId        ID of the last file of the previous page
+     */
+    List<FileListing> findFileInfos(User author, Boolean isPrivate, String mimeType, String extension,
+                                    Instant afterCreatedAt, String afterId, int limit);
+
+    /**
+     * Lock the selected files of an author and get their storage references, in ID order.
+     *
+     * @param limit maximum number of files to lock
+     */
+    List<StoredFile> lockStoredFiles(User author, FileSelection selection, int limit);
+
+    /**
+     * Make the selected files of an author private or public, in a single statement.
+     *
+     * @return the number of files updated
+     */
+    int updatePrivacy(User author, FileSelection selection, boolean isPrivate);
+
+    /**
+     * A listed file with its exact creation date, which the cursor needs at full precision.
+     */
+    record FileListing(FileInfoResponse info, Instant createdAt) {
+    }
+
+    /**
+     * Files of an author chosen by IDs, or by filters when there are none. Null filters are ignored.
+     */
+    record FileSelection(List<String> ids, Boolean isPrivate, String mimeType, String extension) {
+    }
+
+    /**
+     * What deleting a file has to release.
+     */
+    record StoredFile(String id, String checksumSha256, String filePath, Long fileSize) {
+    }
+}
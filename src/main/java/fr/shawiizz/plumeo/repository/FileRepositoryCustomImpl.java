@@ -0,0 +1,138 @@
+package fr.shawiizz.plumeo.repository;
+
+import fr.shawiizz.plumeo.dto.response.FileInfoResponse;
+import fr.shawiizz.plumeo.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+
+import java.time.Instant;
+import java.util.List;
+
+public class FileRepositoryCustomImpl implements FileRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<FileListing> findFileInfos(User author, Boolean isPrivate, String mimeType, String extension,
+                                           Instant afterCreatedAt, String afterId, int limit) {
+        StringBuilder jpql = new StringBuilder("""
+                select new fr.shawiizz.plumeo.dto.response.FileInfoResponse(
+                    f.id, f.fileName, f.originalFileName, f.fileExtension, f.mimeType,
+                    f.fileSize, f.isPrivate, f.author.id, f.createdAt, f.updatedAt),
+                    f.createdAt
+                from File f
+                where f.author = :author
+                """);
+
+        // Only the filters in use are added, so each combination gets its own plan
+        if (isPrivate != null) {
+            jpql.append(" and f.isPrivate = :isPrivate");
+        }
+        if (mimeType != null) {
+            jpql.append(" and f.mimeType = :mimeType");
+        }
+        if (extension != null) {
+            jpql.append(" and f.fileExtension = :extension");
+        }
+        if (afterCreatedAt != null) {
+            // Row value comparison, resolved by a single index seek
+            jpql.append(" and (f.createdAt, f.id) < (:afterCreatedAt, :afterId)");
+        }
+        jpql.append(" order by f.createdAt desc, f.id desc");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class)
+                .setParameter("author", author)
+                .setMaxResults(limit);
+        if (isPrivate != null) {
+            query.setParameter("isPrivate", isPrivate);
+        }
+        if (mimeType != null) {
+            query.setParameter("mimeType", mimeType);
+        }
+        if (extension != null) {
+            query.setParameter("extension", extension);
+        }
+        if (afterCreatedAt != null) {
+            query.setParameter("afterCreatedAt", afterCreatedAt);
+            query.setParameter("afterId", afterId);
+        }
+
+        return query.getResultList().stream()
+                .map(row -> new FileListing((FileInfoResponse) row[0], (Instant) row[1]))
+                .toList();
+    }
+
+    @Override
+    public List<StoredFile> lockStoredFiles(User author, FileSelection selection, int limit) {
+        // Native for FOR UPDATE on a projection; ID order so concurrent bulk operations lock rows alike
+        String sql = "SELECT id, checksum_sha256, file_path, file_size FROM files WHERE author_id = :authorId"
+                + selectionConditions(selection, false)
+                + " ORDER BY id LIMIT :limit FOR UPDATE";
+
+        Query query = entityManager.createNativeQuery(sql)
+                .setParameter("authorId", author.getId())
+                .setParameter("limit", limit);
+        bindSelection(query, selection);
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        return rows.stream()
+                .map(row -> new StoredFile((String) row[0], (String) row[1], (String) row[2],
+                        row[3] != null ? ((Number) row[3]).longValue() : null))
+                .toList();
+    }
+
+    @Override
+    public int updatePrivacy(User author, FileSelection selection, boolean isPrivate) {
+        String jpql = "update File f set f.isPrivate = :newPrivacy, f.updatedAt = :now"
+                + " where f.author = :author and f.isPrivate <> :newPrivacy"
+                + selectionConditions(selection, true);
+
+        Query query = entityManager.createQuery(jpql)
+                .setParameter("newPrivacy", isPrivate)
+                .setParameter("now", Instant.now())
+                .setParameter("author", author);
+        bindSelection(query, selection);
+        return query.executeUpdate();
+    }
+
+    /**
+     * Conditions of a selection, on entity attributes for JPQL or on columns for SQL.
+     * The IN list is padded by Hibernate (in_clause_parameter_padding) so few statement shapes exist.
+     */
+    private String selectionConditions(FileSelection selection, boolean jpql) {
+        String prefix = jpql ? "f." : "";
+        StringBuilder sql = new StringBuilder();
+        if (selection.ids() != null) {
+            sql.append(" and ").append(prefix).append("id in (:ids)");
+        }
+        if (selection.isPrivate() != null) {
+            sql.append(" and ").append(prefix).append(jpql ? "isPrivate" : "is_private").append(" = :isPrivate");
+        }
+        if (selection.mimeType() != null) {
+            sql.append(" and ").append(prefix).append(jpql ? "mimeType" : "mime_type").append(" = :mimeType");
+        }
+        if (selection.extension() != null) {
+            sql.append(" and ").append(prefix).append(jpql ? "fileExtension" : "file_extension").append(" = :extension");
+        }
+        return sql.toString();
+    }
+
+    private void bindSelection(Query query, FileSelection selection) {
+        if (selection.ids() != null) {
+            query.setParameter("ids", selection.ids());
+        }
+        if (selection.isPrivate() != null) {
+            query.setParameter("isPrivate", selection.isPrivate());
+        }
+        if (selection.mimeType() != null) {
+            query.setParameter("mimeType", selection.mimeType());
+        }
+        if (selection.extension() != null) {
+            query.setParameter("extension", selection.extension());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package fr.shawiizz.plumeo.repository;
+
+import fr.shawiizz.plumeo.entity.StorageReclaimTask;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StorageReclaimTaskRepository extends JpaRepository<StorageReclaimTask, String> {
+
+    /**
+     * Queue the deletion of objects, in a single statement. Keys already queued are left as they are.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO storage_reclaim_tasks (storage_key, attempts, next_attempt_at, created_at)
+            SELECT k, 0, now(), now() FROM unnest(ARRAY[:keys]) AS k
+            ON CONFLICT (storage_key) DO NOTHING
+            """, nativeQuery = true)
+    int enqueue(@Param("keys") Collection<String> keys);
+
+    /**
+     * Cancel the deletion of objects referenced again. Waits for a reclaimer deleting them right now,
+     * so the objects are either kept or already gone when this returns.
+     */
+    @Modifying
+    @Query("delete from StorageReclaimTask t where t.storageKey in :keys")
+    int cancel(@Param("keys") Collection<String> keys);
+
+    /**
+     * Lock the next tasks due, skipping those locked by another reclaimer.
+     */
+    @Query(value = """
+            SELECT * FROM storage_reclaim_tasks
+            WHERE next_attempt_at <= now()
+            ORDER BY next_attempt_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<StorageReclaimTask> lockDue(@Param("limit") int limit);
+
+    /**
+     * Keys among the given ones that a blob or a file still points to.
+     */
+    @Query(value = """
+            SELECT storage_path FROM blobs WHERE storage_path IN (:keys)
+            UNION
+            SELECT file_path FROM files WHERE file_path IN (:keys)
+            """, nativeQuery = true)
+    List<String> findReferencedKeys(@Param("keys") Collection<String> keys);
+
+    /**
+     * IDs among the given ones of existing blobs (SHA-256) or files, after which derived objects are named.
+     */
+    @Query(value = """
+            SELECT sha256 FROM blobs WHERE sha256 IN (:ids)
+            UNION
+            SELECT id FROM files WHERE id IN (:ids)
+            """, nativeQuery = true)
+    List<String> findExistingContentIds(@Param("ids") Collection<String> ids);
+}
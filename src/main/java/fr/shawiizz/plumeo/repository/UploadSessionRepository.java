@@ -0,0 +1,66 @@
+package fr.shawiizz.plumeo.repository;
+
+import fr.shawiizz.plumeo.entity.UploadSession;
+import fr.shawiizz.plumeo.entity.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    Optional<UploadSession> findByIdAndAuthor(String id, User author);
+
+    List<UploadSession> findByUpdatedAtBefore(Instant updatedAt);
+
+    @Modifying
+    @Transactional
+    @Query("update UploadSession s set s.updatedAt = :updatedAt where s.id = :id")
+    int touch(@Param("id") String id, @Param("updatedAt") Instant updatedAt);
+
+    /**
+     * Mark a session as being completed, at most once.
+     *
+     * @return 1 if the session was claimed, 0 if it is gone or already being completed
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            update UploadSession s set s.completing = true, s.updatedAt = :updatedAt
+            where s.id = :id and s.completing = false
+            """)
+    int claimForCompletion(@Param("id") String id, @Param("updatedAt") Instant updatedAt);
+
+    /**
+     * Give up the completion of a session, so that it can be completed again.
+     */
+    @Modifying
+    @Transactional
+    @Query("update UploadSession s set s.completing = false where s.id = :id")
+    int releaseCompletion(@Param("id") String id);
+
+    /**
+     * Delete a session if it is, or is not, being completed.
+     *
+     * @return 1 if the session was deleted
+     */
+    @Modifying
+    @Query("delete from UploadSession s where s.id = :id and s.completing = :completing")
+    int deleteByIdAndCompleting(@Param("id") String id, @Param("completing") boolean completing);
+
+    /**
+     * Delete a session if it had no activity since the given instant. Claiming it for completion counts as activity.
+     *
+     * @return 1 if the session was deleted
+     */
+    @Modifying
+    @Query("delete from UploadSession s where s.id = :id and s.updatedAt < :updatedAt")
+    int deleteIdleSince(@Param("id") String id, @Param("updatedAt") Instant updatedAt);
+}
@@ -0,0 +1,85 @@
+package fr.shawiizz.plumeo.repository;
+
+import fr.shawiizz.plumeo.entity.UserStorageUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface UserStorageUsageRepository extends JpaRepository<UserStorageUsage, UserStorageUsage.Key> {
+
+    /**
+     * Add a delta to one stripe of a user's usage.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_storage_usage (user_id, stripe, used_bytes, file_count)
+            VALUES (:userId, :stripe, :bytes, :files)
+            ON CONFLICT (user_id, stripe) DO UPDATE SET used_bytes = user_storage_usage.used_bytes + EXCLUDED.used_bytes,
+                file_count = user_storage_usage.file_count + EXCLUDED.file_count
+            """, nativeQuery = true)
+    int add(@Param("userId") String userId, @Param("stripe") short stripe, @Param("bytes") long bytes,
+            @Param("files") long files);
+
+    /**
+     * Take a lock on the quota of a user, released when the current transaction ends. Charges of the
+     * same user queue on it, so each one checks the usage including the charges committed before it.
+     */
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtextextended(:userId, 0))) AS l", nativeQuery = true)
+    Integer lockQuota(@Param("userId") String userId);
+
+    /**
+     * Get the usage of a user, summed over their stripes (primary key range scan).
+     */
+    @Query("""
+            select new fr.shawiizz.plumeo.repository.UserStorageUsageRepository$UsageTotals(
+                coalesce(sum(u.usedBytes), 0L), coalesce(sum(u.fileCount), 0L))
+            from UserStorageUsage u
+            where u.userId = :userId
+            """)
+    UsageTotals sumByUserId(@Param("userId") String userId);
+
+    /**
+     * Move every pending delta into the stripe 0 of its user, in a single statement.
+     *
+     * @return the number of users updated
+     */
+    @Modifying
+    @Query(value = """
+            WITH merged AS (
+                DELETE FROM user_storage_usage WHERE stripe > 0
+                RETURNING user_id, used_bytes, file_count
+            )
+            INSERT INTO user_storage_usage (user_id, stripe, used_bytes, file_count)
+            SELECT user_id, 0, SUM(used_bytes), SUM(file_count) FROM merged GROUP BY user_id
+            ON CONFLICT (user_id, stripe) DO UPDATE SET used_bytes = user_storage_usage.used_bytes + EXCLUDED.used_bytes,
+                file_count = user_storage_usage.file_count + EXCLUDED.file_count
+            """, nativeQuery = true)
+    int mergeStripes();
+
+    /**
+     * Compare the recorded usage of a page of users with their files, in a single statement so both sides
+     * come from the same snapshot.
+     *
+     * @return rows of user ID, bytes drift and file count drift, zero when the usage is accurate
+     */
+    @Query(value = """
+            SELECT u.id,
+                CAST(COALESCE((SELECT SUM(f.file_size) FROM files f WHERE f.author_id = u.id), 0)
+                    - COALESCE((SELECT SUM(s.used_bytes) FROM user_storage_usage s WHERE s.user_id = u.id), 0) AS BIGINT),
+                CAST((SELECT COUNT(*) FROM files f WHERE f.author_id = u.id)
+                    - COALESCE((SELECT SUM(s.file_count) FROM user_storage_usage s WHERE s.user_id = u.id), 0) AS BIGINT)
+            FROM users u
+            WHERE u.id > :afterId
+            ORDER BY u.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Object[]> findUsageDrift(@Param("afterId") String afterId, @Param("limit") int limit);
+
+    record UsageTotals(Long usedBytes, Long fileCount) {
+    }
+}
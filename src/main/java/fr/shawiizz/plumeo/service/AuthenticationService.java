@@ -1,5 +1,6 @@
 package fr.shawiizz.plumeo.service;
 
+import fr.shawiizz.plumeo.dto.UserSnapshot;
 import fr.shawiizz.plumeo.entity.User;
 import fr.shawiizz.plumeo.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -17,6 +18,7 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class AuthenticationService {
     private final UserRepository userRepository;
+    private final UserCache userCache;
 
     /**
      * Get the user ID of the currently authenticated user.
@@ -39,13 +41,41 @@ public class AuthenticationService {
     }
 
     /**
-     * Get the currently authenticated user entity.
+     * Get the currently authenticated user.
+     * Served from the user cache, use {@link #getCurrentUserForUpdate()} to change the user.
      *
-     * @return Optional containing the User entity if authenticated, empty otherwise
+     * @return Optional containing the user if authenticated, empty otherwise
      */
-    public Optional<User> getCurrentUser() {
+    public Optional<UserSnapshot> getCurrentUser() {
         return getCurrentUserId()
-                .flatMap(userRepository::findById);
+                .flatMap(userCache::get);
+    }
+
+    /**
+     * Load the currently authenticated user entity from the database, managed by the current
+     * persistence context. The user cache must be invalidated once the changes are saved.
+     *
+     * @return User entity
+     * @throws RuntimeException if no user is authenticated
+     */
+    public User getCurrentUserForUpdate() {
+        return getCurrentUserId()
+                .flatMap(userRepository::findById)
+                .orElseThrow(() -> new RuntimeException("No authenticated user found"));
+    }
+
+    /**
+     * Get a lazy reference to the currently authenticated user.
+     * No query is issued until an attribute other than the ID is accessed,
+     * so it can be used to scope queries or set associations without loading the user row.
+     *
+     * @return User reference
+     * @throws RuntimeException if no user is authenticated
+     */
+    public User getCurrentUserReference() {
+        return getCurrentUserId()
+                .map(userRepository::getReferenceById)
+                .orElseThrow(() -> new RuntimeException("No authenticated user found"));
     }
 
     /**
@@ -58,12 +88,12 @@ public class AuthenticationService {
     }
 
     /**
-     * Get the currently authenticated user entity or throw exception.
+     * Get the currently authenticated user or throw exception.
      *
-     * @return User entity
+     * @return the cached user
      * @throws RuntimeException if no user is authenticated
      */
-    public User getCurrentUserOrThrow() {
+    public UserSnapshot getCurrentUserOrThrow() {
         return getCurrentUser()
                 .orElseThrow(() -> new RuntimeException("No authenticated user found"));
     }
@@ -0,0 +1,198 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.entity.Blob;
+import fr.shawiizz.plumeo.repository.BlobRepository;
+import fr.shawiizz.plumeo.storage.StorageBackend;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * Re-reads stored blobs in the background to detect bit rot and lost objects.
+ * <p>
+ * Blobs are walked in SHA-256 order, one batch per tick, starting over once the end is reached.
+ * Content is checked against the CRC32C recorded at upload; blobs stored before that are checked
+ * against their SHA-256 and get their CRC32C filled in. Reads are throttled to a fixed byte rate
+ * so scrubbing never competes with downloads for disk bandwidth.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BlobScrubber implements MeterBinder {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BlobRepository blobRepository;
+    private final StorageBackend storageBackend;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${storage.scrub.enabled:false}")
+    private boolean enabled;
+
+    @Value("${storage.scrub.batch-size:100}")
+    private int batchSize;
+
+    @Value("${storage.scrub.rate:20MB}")
+    private DataSize rate;
+
+    // Keyset cursor of the current pass
+    private String cursor = "";
+
+    private final LongAdder verifiedBytes = new LongAdder();
+    private final LongAdder corruptedBlobs = new LongAdder();
+    private final AtomicLong flaggedBlobs = new AtomicLong();
+
+    @Scheduled(fixedDelayString = "${storage.scrub.interval:PT10S}")
+    public void scrubScheduled() {
+        if (enabled) {
+            scrubNextBatch();
+        }
+    }
+
+    /**
+     * Verify the next batch of blobs.
+     *
+     * @return the number of blobs verified
+     */
+    public synchronized int scrubNextBatch() {
+        List<Blob> batch = blobRepository.findBySha256GreaterThanOrderBySha256Asc(cursor, Limit.of(batchSize));
+        Throttle throttle = new Throttle(rate.toBytes());
+        for (Blob blob : batch) {
+            verify(blob, throttle);
+        }
+
+        if (batch.size() < batchSize) {
+            cursor = "";
+            flaggedBlobs.set(blobRepository.countByCorruptedAtIsNotNull());
+            log.debug("Scrub pass finished, {} corrupted blobs", flaggedBlobs.get());
+        } else {
+            cursor = batch.get(batch.size() - 1).getSha256();
+        }
+        return batch.size();
+    }
+
+    private void verify(Blob blob, Throttle throttle) {
+        String sha256 = blob.getSha256();
+        String storagePath = blob.getStoragePath();
+        boolean checkSha256 = blob.getCrc32c() == null;
+
+        MessageDigest digest = checkSha256 ? newSha256Digest() : null;
+        CRC32C crc = new CRC32C();
+        long size = 0;
+
+        try (InputStream in = storageBackend.read(storagePath)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+                if (digest != null) {
+                    digest.update(buffer, 0, read);
+                }
+                size += read;
+                throttle.acquire(read);
+            }
+        } catch (NoSuchFileException e) {
+            flagCorrupted(blob, "object missing");
+            return;
+        } catch (IOException e) {
+            // Transient read errors are retried on the next pass
+            log.warn("Could not scrub blob {}: {}", sha256, e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        verifiedBytes.add(size);
+
+        String mismatch = null;
+        if (size != blob.getSize()) {
+            mismatch = "size " + size + " instead of " + blob.getSize();
+        } else if (digest != null && !HexFormat.of().formatHex(digest.digest()).equals(sha256)) {
+            mismatch = "SHA-256 mismatch";
+        } else if (!checkSha256 && crc.getValue() != blob.getCrc32c()) {
+            mismatch = "CRC32C mismatch";
+        }
+
+        if (mismatch != null) {
+            flagCorrupted(blob, mismatch);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                blobRepository.markVerified(sha256, storagePath, crc.getValue(), Instant.now()));
+    }
+
+    private void flagCorrupted(Blob blob, String reason) {
+        Integer flagged = transactionTemplate.execute(status ->
+                blobRepository.markCorrupted(blob.getSha256(), blob.getStoragePath(), Instant.now()));
+        // No row updated: the blob was moved or deleted while being read, which is not corruption
+        if (flagged != null && flagged == 1) {
+            corruptedBlobs.increment();
+            log.error("Blob {} at {} is corrupted: {}", blob.getSha256(), blob.getStoragePath(), reason);
+        }
+    }
+
+    private static MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("plumeo.blob.scrub.size", verifiedBytes, LongAdder::sum)
+                .description("Bytes re-read by the scrubber")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("plumeo.blob.scrub.corruptions", corruptedBlobs, LongAdder::sum)
+                .description("Blobs found corrupted or missing by the scrubber")
+                .register(registry);
+        Gauge.builder("plumeo.blob.corrupted", flaggedBlobs, AtomicLong::get)
+                .description("Blobs flagged as corrupted at the end of the last scrub pass")
+                .register(registry);
+    }
+
+    /**
+     * Sleeps as needed to keep the average read rate of a batch under a limit.
+     */
+    private static final class Throttle {
+        private final long bytesPerSecond;
+        private final long start = System.nanoTime();
+        private long bytes;
+
+        Throttle(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        void acquire(long read) throws InterruptedException {
+            bytes += read;
+            long expectedNanos = (long) (bytes * 1e9 / bytesPerSecond);
+            long aheadNanos = expectedNanos - (System.nanoTime() - start);
+            if (aheadNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(aheadNanos);
+            }
+        }
+    }
+}
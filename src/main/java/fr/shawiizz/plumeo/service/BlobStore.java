@@ -0,0 +1,222 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.entity.Blob;
+import fr.shawiizz.plumeo.repository.BlobRepository;
+import fr.shawiizz.plumeo.repository.FileRepositoryCustom.StoredFile;
+import fr.shawiizz.plumeo.storage.StorageBackend;
+import fr.shawiizz.plumeo.storage.StorageLayout;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Content-addressed, reference-counted storage of file contents.
+ * Identical uploads share a single blob keyed by their SHA-256, so a duplicate
+ * costs no second write, and a blob is only unlinked when its last reference goes.
+ * <p>
+ * Content is written by {@link #write} before any transaction starts, so slow storage never holds
+ * a connection or a lock. The blob row is then locked by both {@link #acquire} and {@link #releaseAll}
+ * until the end of the surrounding transaction, which serializes concurrent uploads and deletions
+ * of the same content. Unlinked content, and content written for a transaction that rolled back,
+ * is deleted afterwards by the {@link StorageReclaimer}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BlobStore implements MeterBinder {
+    private final BlobRepository blobRepository;
+    private final StorageBackend storageBackend;
+    private final StorageLayout storageLayout;
+    private final ThumbnailService thumbnailService;
+    private final CompressionService compressionService;
+    private final StorageReclaimer storageReclaimer;
+
+    private final LongAdder deduplicatedUploads = new LongAdder();
+    private final LongAdder deduplicatedBytes = new LongAdder();
+
+    // Refreshed by refreshStoredSizes
+    private volatile long logicalBytes;
+    private volatile long physicalBytes;
+
+    /**
+     * Store the content of a staged file under its blob key, outside of any transaction.
+     * The staged file is handed to the storage backend for new content and deleted otherwise.
+     * The object is only referenced once {@link #acquire} commits, until then it can be reclaimed,
+     * see {@link #discard}.
+     *
+     * @param stagedFile the fully written staging file
+     * @param sha256     the hex SHA-256 of the content
+     * @return the key written, or null if the content was already stored
+     */
+    public String write(Path stagedFile, String sha256) throws IOException {
+        String storageKey = storageLayout.blobKey(sha256);
+        if (storageBackend.exists(storageKey)) {
+            Files.deleteIfExists(stagedFile);
+            return null;
+        }
+        storageBackend.put(storageKey, stagedFile);
+        return storageKey;
+    }
+
+    /**
+     * Add a reference to the blob holding the given content, stored beforehand by {@link #write}.
+     *
+     * @param sha256     the hex SHA-256 of the content
+     * @param size       the content size in bytes
+     * @param crc32c     the CRC32C of the content
+     * @param writtenKey the key returned by {@link #write}
+     * @return the storage key of the blob
+     * @throws IOException if the content was reclaimed after being written, the upload must be retried
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public String acquire(String sha256, long size, long crc32c, String writtenKey) throws IOException {
+        blobRepository.acquire(sha256, size, storageLayout.blobKey(sha256), crc32c);
+        // Blobs stored with an older layout keep their key until migrated
+        String storageKey = blobRepository.findStoragePath(sha256);
+
+        // Content deleted recently may still be queued for reclamation: keep it, or wait until it is gone
+        storageReclaimer.cancel(objectKeys(sha256, storageKey));
+        if (!storageBackend.exists(storageKey)) {
+            throw new IOException("Content " + sha256 + " was deleted while uploading, please retry");
+        }
+
+        if (writtenKey == null) {
+            deduplicatedUploads.increment();
+            deduplicatedBytes.add(size);
+            log.debug("Deduplicated upload of blob {} ({} bytes)", sha256, size);
+        } else if (!writtenKey.equals(storageKey)) {
+            // Copie inutile, le blob existait déjà sous une ancienne clé
+            storageReclaimer.reclaim(List.of(writtenKey));
+        }
+
+        return storageKey;
+    }
+
+    /**
+     * Queue the deletion of objects written by {@link #write} for a transaction that rolled back,
+     * in a transaction of its own. Objects referenced meanwhile by another upload are kept.
+     *
+     * @param writtenKeys the keys returned by {@link #write}, null elements are ignored
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void discard(Collection<String> writtenKeys) {
+        List<String> keys = writtenKeys.stream()
+                .filter(Objects::nonNull)
+                .toList();
+        if (!keys.isEmpty()) {
+            storageReclaimer.reclaim(keys);
+            log.debug("{} objects of a failed upload queued for deletion", keys.size());
+        }
+    }
+
+    /**
+     * Remove the references of deleted files. Blobs losing their last reference are unlinked and their
+     * objects, like those of files stored before deduplication, are queued for deletion.
+     *
+     * @param files the files being deleted, their rows must be locked
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void releaseAll(Collection<StoredFile> files) {
+        Map<String, List<StoredFile>> filesBySha256 = files.stream()
+                .filter(file -> file.checksumSha256() != null)
+                .collect(Collectors.groupingBy(StoredFile::checksumSha256));
+
+        Set<String> releasedFileIds = new HashSet<>();
+        List<Blob> unlinked = new ArrayList<>();
+        List<String> reclaimedKeys = new ArrayList<>();
+
+        if (!filesBySha256.isEmpty()) {
+            for (Blob blob : blobRepository.findAllForUpdate(filesBySha256.keySet())) {
+                List<StoredFile> references = filesBySha256.get(blob.getSha256()).stream()
+                        .filter(file -> file.filePath().equals(blob.getStoragePath()))
+                        .toList();
+                if (references.isEmpty()) {
+                    continue;
+                }
+                references.forEach(file -> releasedFileIds.add(file.id()));
+
+                if (blob.getRefCount() > references.size()) {
+                    blob.setRefCount(blob.getRefCount() - references.size());
+                } else {
+                    unlinked.add(blob);
+                    reclaimedKeys.addAll(objectKeys(blob.getSha256(), blob.getStoragePath()));
+                }
+            }
+        }
+
+        // Fichiers stockés avant la déduplication
+        for (StoredFile file : files) {
+            if (!releasedFileIds.contains(file.id())) {
+                reclaimedKeys.add(file.filePath());
+                reclaimedKeys.addAll(thumbnailService.thumbnailKeys(file.id()));
+            }
+        }
+
+        blobRepository.deleteAllInBatch(unlinked);
+        storageReclaimer.reclaim(reclaimedKeys);
+        log.info("{} files released, {} blobs unlinked", files.size(), unlinked.size());
+    }
+
+    /**
+     * Every object stored for some content: the blob itself and its derivatives.
+     */
+    private List<String> objectKeys(String sha256, String storageKey) {
+        List<String> keys = new ArrayList<>(thumbnailService.thumbnailKeys(sha256));
+        keys.add(storageKey);
+        keys.add(compressionService.variantKey(sha256));
+        return keys;
+    }
+
+    /**
+     * Refresh the total sizes behind the deduplication ratio. Both sums scan the blobs table,
+     * so they are computed periodically rather than on every scrape.
+     */
+    @Scheduled(fixedDelayString = "${storage.dedup.stats-interval:PT5M}")
+    public void refreshStoredSizes() {
+        logicalBytes = blobRepository.sumLogicalSize();
+        physicalBytes = blobRepository.sumPhysicalSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("plumeo.blob.deduplicated.uploads", deduplicatedUploads, LongAdder::sum)
+                .description("Uploads whose content was already stored")
+                .register(registry);
+        FunctionCounter.builder("plumeo.blob.deduplicated.size", deduplicatedBytes, LongAdder::sum)
+                .description("Bytes not written thanks to deduplication")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("plumeo.blob.logical.size", this, store -> store.logicalBytes)
+                .description("Total size of the files referencing a blob")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("plumeo.blob.physical.size", this, store -> store.physicalBytes)
+                .description("Total size of the stored blobs")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("plumeo.blob.deduplication.ratio", this,
+                        store -> store.physicalBytes > 0 ? (double) store.logicalBytes / store.physicalBytes : 1.0)
+                .description("Logical size of the files divided by the physical size of the blobs")
+                .register(registry);
+    }
+}
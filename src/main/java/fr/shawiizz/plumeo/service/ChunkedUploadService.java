@@ -0,0 +1,304 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.dto.request.CreateUploadSessionRequest;
+import fr.shawiizz.plumeo.dto.response.FileUploadResponse;
+import fr.shawiizz.plumeo.dto.response.UploadSessionResponse;
+import fr.shawiizz.plumeo.entity.UploadChunk;
+import fr.shawiizz.plumeo.entity.UploadSession;
+import fr.shawiizz.plumeo.entity.User;
+import fr.shawiizz.plumeo.exception.FileTooLargeException;
+import fr.shawiizz.plumeo.exception.StorageQuotaExceededException;
+import fr.shawiizz.plumeo.repository.UploadChunkRepository;
+import fr.shawiizz.plumeo.repository.UploadSessionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resumable chunked uploads.
+ * A session preallocates its file in the staging directory, chunks are written at their
+ * offset with positional writes (in any order and in parallel), and the file is moved to
+ * its final location once every byte has been received.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkedUploadService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadChunkRepository uploadChunkRepository;
+    private final FileService fileService;
+    private final StorageQuotaService storageQuotaService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${file.chunked.max-size:10GB}")
+    private DataSize maxFileSize;
+
+    @Value("${file.chunked.max-chunk-size:64MB}")
+    private DataSize maxChunkSize;
+
+    @Value("${file.chunked.session-ttl:24h}")
+    private Duration sessionTtl;
+
+    public UploadSessionResponse createSession(CreateUploadSessionRequest request, User author) {
+        if (request.totalSize() > maxFileSize.toBytes()) {
+            throw new FileTooLargeException();
+        }
+        // Vérifié avant de réserver l'espace disque, puis à nouveau à la fin de l'envoi
+        if (request.totalSize() > storageQuotaService.getRemaining(author.getId())) {
+            throw new StorageQuotaExceededException();
+        }
+
+        try {
+            // Fichier préalloué (creux) dans lequel les morceaux sont écrits à leur position
+            Path tempFile = fileService.createStagingFile();
+            try (RandomAccessFile file = new RandomAccessFile(tempFile.toFile(), "rw")) {
+                file.setLength(request.totalSize());
+            }
+
+            UploadSession session = new UploadSession();
+            session.setAuthor(author);
+            session.setOriginalFileName(request.fileName().trim());
+            session.setMimeType(request.mimeType());
+            session.setTotalSize(request.totalSize());
+            session.setIsPrivate(request.isPrivate() != null ? request.isPrivate() : false);
+            session.setTempPath(tempFile.toString());
+
+            UploadSession savedSession = uploadSessionRepository.save(session);
+
+            log.info("Upload session {} created by user {} for {} bytes",
+                    savedSession.getId(), author.getId(), savedSession.getTotalSize());
+
+            return toResponse(savedSession, List.of());
+        } catch (IOException e) {
+            log.error("Error creating upload session for user {}: {}", author.getId(), e.getMessage());
+            throw new RuntimeException("Failed to create upload session: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write a chunk at the given offset. The chunk length is the number of bytes read from the stream.
+     *
+     * @param sessionId the upload session ID
+     * @param author    the session owner
+     * @param offset    the position of the first byte of the chunk
+     * @param content   the chunk content, read once and not closed
+     */
+    public void writeChunk(String sessionId, User author, long offset, InputStream content) {
+        UploadSession session = getSession(sessionId, author);
+
+        if (session.getCompleting()) {
+            throw new RuntimeException("Upload is being completed");
+        }
+        if (offset < 0 || offset >= session.getTotalSize()) {
+            throw new RuntimeException("Chunk offset out of bounds");
+        }
+        long maxLength = Math.min(maxChunkSize.toBytes(), session.getTotalSize() - offset);
+
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(Paths.get(session.getTempPath()), StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                if (written + read > maxLength) {
+                    throw new RuntimeException("Chunk exceeds the session size or the maximum chunk size");
+                }
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer, offset + written + (read - byteBuffer.remaining()));
+                }
+                written += read;
+            }
+        } catch (IOException e) {
+            log.error("Error writing chunk at {} for upload session {}: {}", offset, sessionId, e.getMessage());
+            throw new RuntimeException("Failed to write chunk: " + e.getMessage());
+        }
+
+        if (written == 0) {
+            throw new RuntimeException("Chunk is empty");
+        }
+
+        // Only recorded once the bytes are on disk, an interrupted chunk is simply sent again
+        UploadChunk chunk = new UploadChunk();
+        chunk.setSessionId(sessionId);
+        chunk.setChunkOffset(offset);
+        chunk.setChunkLength(written);
+        uploadChunkRepository.save(chunk);
+        uploadSessionRepository.touch(sessionId, Instant.now());
+    }
+
+    public UploadSessionResponse getStatus(String sessionId, User author) {
+        UploadSession session = getSession(sessionId, author);
+        return toResponse(session, getReceivedRanges(sessionId));
+    }
+
+    /**
+     * Turn a fully received session into a file.
+     * Runs without a transaction: the session is claimed first so that a single request completes it,
+     * and is only deleted in the transaction recording the file, so that a rollback discards the stored content.
+     *
+     * @throws RuntimeException if some bytes have not been received yet or the session is already being completed
+     */
+    public FileUploadResponse completeSession(String sessionId, User author) {
+        UploadSession session = getSession(sessionId, author);
+
+        if (!isComplete(session, getReceivedRanges(sessionId))) {
+            throw new RuntimeException("Upload is not complete");
+        }
+        if (uploadSessionRepository.claimForCompletion(sessionId, Instant.now()) != 1) {
+            throw new RuntimeException("Upload is already being completed");
+        }
+
+        Path tempFile = Paths.get(session.getTempPath());
+        try {
+            // Les morceaux arrivent dans le désordre, les sommes de contrôle demandent donc une relecture séquentielle
+            FileService.StoredContent stored = fileService.computeChecksums(tempFile);
+
+            FileUploadResponse response = fileService.importStagedFile(tempFile, session.getOriginalFileName(),
+                    session.getMimeType(), stored, author, session.getIsPrivate(), () -> {
+                        uploadChunkRepository.deleteBySessionId(sessionId);
+                        if (uploadSessionRepository.deleteByIdAndCompleting(sessionId, true) != 1) {
+                            throw new IllegalStateException("Upload session " + sessionId + " disappeared while completing");
+                        }
+                    });
+
+            log.info("Upload session {} completed as file {}", sessionId, response.id());
+            return response;
+        } catch (IOException e) {
+            log.error("Error completing upload session {}: {}", sessionId, e.getMessage());
+            abandonCompletion(sessionId, tempFile);
+            throw new RuntimeException("Failed to complete upload: " + e.getMessage());
+        } catch (RuntimeException e) {
+            abandonCompletion(sessionId, tempFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Undo a failed completion: the session can be completed again while its staging file exists,
+     * otherwise the content has been consumed by the import and the session is dropped.
+     */
+    private void abandonCompletion(String sessionId, Path tempFile) {
+        if (Files.exists(tempFile)) {
+            uploadSessionRepository.releaseCompletion(sessionId);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            uploadChunkRepository.deleteBySessionId(sessionId);
+            uploadSessionRepository.deleteByIdAndCompleting(sessionId, true);
+        });
+    }
+
+    /**
+     * @throws RuntimeException if the session is being completed
+     */
+    @Transactional
+    public void abortSession(String sessionId, User author) {
+        UploadSession session = getSession(sessionId, author);
+        if (uploadSessionRepository.deleteByIdAndCompleting(sessionId, false) != 1) {
+            throw new RuntimeException("Upload is being completed");
+        }
+        discard(session);
+    }
+
+    /**
+     * Garbage-collect sessions without activity for longer than the session TTL.
+     * Each session is deleted only if still idle, a session claimed for completion in the meantime is kept.
+     */
+    @Scheduled(fixedDelayString = "${file.chunked.cleanup-interval:PT1H}")
+    @Transactional
+    public void cleanupAbandonedSessions() {
+        Instant cutoff = Instant.now().minus(sessionTtl);
+        int cleaned = 0;
+        for (UploadSession session : uploadSessionRepository.findByUpdatedAtBefore(cutoff)) {
+            if (uploadSessionRepository.deleteIdleSince(session.getId(), cutoff) == 1) {
+                discard(session);
+                cleaned++;
+            }
+        }
+        if (cleaned > 0) {
+            log.info("Cleaned up {} abandoned upload sessions", cleaned);
+        }
+    }
+
+    /**
+     * Drop the chunks and the staging file of a session whose row has just been deleted.
+     */
+    private void discard(UploadSession session) {
+        fileService.deleteStagingFile(Paths.get(session.getTempPath()));
+        uploadChunkRepository.deleteBySessionId(session.getId());
+    }
+
+    private UploadSession getSession(String sessionId, User author) {
+        return uploadSessionRepository.findByIdAndAuthor(sessionId, author)
+                .orElseThrow(() -> new RuntimeException("Upload session not found or access denied"));
+    }
+
+    /**
+     * Merge the received chunks into sorted, non-overlapping ranges.
+     */
+    private List<UploadSessionResponse.Range> getReceivedRanges(String sessionId) {
+        List<UploadSessionResponse.Range> ranges = new ArrayList<>();
+        long start = -1;
+        long end = -1;
+
+        for (UploadChunk chunk : uploadChunkRepository.findBySessionIdOrderByChunkOffsetAsc(sessionId)) {
+            long chunkEnd = chunk.getChunkOffset() + chunk.getChunkLength();
+            if (start >= 0 && chunk.getChunkOffset() <= end) {
+                end = Math.max(end, chunkEnd);
+            } else {
+                if (start >= 0) {
+                    ranges.add(new UploadSessionResponse.Range(start, end));
+                }
+                start = chunk.getChunkOffset();
+                end = chunkEnd;
+            }
+        }
+        if (start >= 0) {
+            ranges.add(new UploadSessionResponse.Range(start, end));
+        }
+        return ranges;
+    }
+
+    private boolean isComplete(UploadSession session, List<UploadSessionResponse.Range> ranges) {
+        return ranges.size() == 1
+                && ranges.get(0).start() == 0
+                && ranges.get(0).end().equals(session.getTotalSize());
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session, List<UploadSessionResponse.Range> ranges) {
+        long receivedBytes = ranges.stream()
+                .mapToLong(range -> range.end() - range.start())
+                .sum();
+
+        return new UploadSessionResponse(
+                session.getId(),
+                session.getOriginalFileName(),
+                session.getTotalSize(),
+                receivedBytes,
+                ranges,
+                isComplete(session, ranges),
+                session.getCreatedAt().toEpochMilli()
+        );
+    }
+}
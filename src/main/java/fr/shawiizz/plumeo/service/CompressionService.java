@@ -0,0 +1,248 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.entity.File;
+import fr.shawiizz.plumeo.repository.BlobRepository;
+import fr.shawiizz.plumeo.storage.StorageBackend;
+import fr.shawiizz.plumeo.storage.StorageLayout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip variants of compressible stored content, compressed once and then served as-is.
+ * <p>
+ * Variants are produced in the background after upload, or after the first download asking
+ * for gzip when the queue was full, and stored next to their blob. Their size is recorded on
+ * the blob, {@value #NOT_COMPRESSIBLE} meaning the content did not shrink enough to be worth it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CompressionService {
+    public static final String GZIP = "gzip";
+    public static final long NOT_COMPRESSIBLE = -1;
+
+    public static final String NAMESPACE = "gzip";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Compressible types outside text/*, +json and +xml
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+            "application/json",
+            "application/javascript",
+            "application/xml",
+            "application/x-sh",
+            "image/bmp",
+            "image/svg+xml"
+    );
+
+    private final BlobRepository blobRepository;
+    private final StorageBackend storageBackend;
+    private final TransactionTemplate transactionTemplate;
+    private final StorageLayout storageLayout;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${file.upload.dir:/app/plumeo}")
+    private String uploadDir;
+
+    @Value("${file.compression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${file.compression.min-size:1KB}")
+    private DataSize minSize;
+
+    @Value("${file.compression.max-size:64MB}")
+    private DataSize maxSize;
+
+    // Variants larger than this fraction of the original are not kept
+    @Value("${file.compression.max-ratio:0.9}")
+    private double maxRatio;
+
+    @Value("${file.compression.queue-capacity:100}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    // Blobs being compressed, so repeated downloads do not queue the same work
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private Counter savedBytesCounter;
+
+    @PostConstruct
+    void init() {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("compression-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        savedBytesCounter = Counter.builder("plumeo.file.compression.saved")
+                .description("Bytes not sent thanks to gzip variants")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Whether the content of the file can get a gzip variant: deduplicated content
+     * of a compressible type, neither too small to matter nor too large to compress.
+     */
+    public boolean isCandidate(File file) {
+        return enabled
+                && file.getChecksumSha256() != null
+                && file.getFileSize() != null
+                && file.getFileSize() >= minSize.toBytes()
+                && file.getFileSize() <= maxSize.toBytes()
+                && isCompressible(file.getMimeType());
+    }
+
+    /**
+     * Whether a MIME type is worth compressing. Images, audio, video and archives are
+     * compressed already and are not.
+     */
+    public boolean isCompressible(String mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+        String type = mimeType.toLowerCase();
+        int parameters = type.indexOf(';');
+        if (parameters >= 0) {
+            type = type.substring(0, parameters).trim();
+        }
+        return type.startsWith("text/") || type.endsWith("+json") || type.endsWith("+xml")
+                || COMPRESSIBLE_TYPES.contains(type);
+    }
+
+    /**
+     * Queue the compression of the file content, unless it is already known or the queue is full.
+     */
+    public void precompressAsync(File file) {
+        if (!isCandidate(file) || file.getGzipSize() != null) {
+            return;
+        }
+
+        String sha256 = file.getChecksumSha256();
+        if (!inFlight.add(sha256)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    precompress(sha256, file.getFilePath(), file.getFileSize());
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not compress blob {}: {}", sha256, e.getMessage());
+                } finally {
+                    inFlight.remove(sha256);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Retried on a later download
+            inFlight.remove(sha256);
+        }
+    }
+
+    /**
+     * Get the storage key of the gzip variant of some content.
+     */
+    public String variantKey(String sha256) {
+        return storageLayout.key(NAMESPACE, sha256 + ".gz");
+    }
+
+    /**
+     * Get the content a variant was compressed from, the reverse of {@link #variantKey}.
+     *
+     * @return the content SHA-256, empty if the key is not a variant key
+     */
+    public Optional<String> sha256Of(String key) {
+        String name = key.substring(key.lastIndexOf('/') + 1);
+        if (!name.endsWith(".gz") || name.length() == ".gz".length()) {
+            return Optional.empty();
+        }
+        return Optional.of(name.substring(0, name.length() - ".gz".length()));
+    }
+
+    void precompress(String sha256, String storagePath, long size) throws IOException {
+        // Another file with the same content may have been compressed meanwhile
+        if (blobRepository.findGzipSize(sha256).isPresent()) {
+            return;
+        }
+
+        Path stagingDir = Paths.get(uploadDir, "tmp");
+        Files.createDirectories(stagingDir);
+        Path compressed = Files.createTempFile(stagingDir, "gzip-", ".part");
+        try {
+            try (InputStream in = storageBackend.read(storagePath);
+                 OutputStream out = new BestGzipOutputStream(Files.newOutputStream(compressed))) {
+                in.transferTo(out);
+            }
+
+            long gzipSize = Files.size(compressed);
+            if (gzipSize > size * maxRatio) {
+                recordGzipSize(sha256, NOT_COMPRESSIBLE);
+                return;
+            }
+
+            String key = variantKey(sha256);
+            storageBackend.put(key, compressed);
+            if (!recordGzipSize(sha256, gzipSize) && !blobRepository.existsById(sha256)) {
+                // The blob was unlinked while compressing
+                storageBackend.delete(key);
+                return;
+            }
+            log.debug("Blob {} compressed from {} to {} bytes", sha256, size, gzipSize);
+        } finally {
+            Files.deleteIfExists(compressed);
+        }
+    }
+
+    /**
+     * Record the outcome once per blob: one download served from the variant saves the difference.
+     *
+     * @return false if the blob is gone or already has a recorded size
+     */
+    private boolean recordGzipSize(String sha256, long gzipSize) {
+        Integer updated = transactionTemplate.execute(status -> blobRepository.updateGzipSize(sha256, gzipSize));
+        return updated != null && updated == 1;
+    }
+
+    /**
+     * Count the bytes not sent for one download served from a gzip variant.
+     */
+    public void recordServed(long size, long gzipSize) {
+        savedBytesCounter.increment(size - gzipSize);
+    }
+
+    /**
+     * Gzip stream at the highest compression level, the cost being paid once per content.
+     */
+    private static final class BestGzipOutputStream extends GZIPOutputStream {
+        BestGzipOutputStream(OutputStream out) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
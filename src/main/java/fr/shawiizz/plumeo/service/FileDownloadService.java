@@ -0,0 +1,453 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.entity.File;
+import fr.shawiizz.plumeo.storage.StorageBackend;
+import fr.shawiizz.plumeo.util.MimeTypeRegistry;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams stored files to HTTP clients with support for byte ranges and conditional requests.
+ * Files on a local file system are served without copying: single regions are handed to
+ * Tomcat's sendfile when available so the content never goes through the JVM heap, other
+ * responses are written with {@link FileChannel#transferTo}. Remote objects are streamed
+ * with ranged reads from the storage backend.
+ * <p>
+ * Clients accepting gzip get the precompressed variant of compressible files when there is one,
+ * through the same path: ranges and validators then apply to the compressed representation.
+ * <p>
+ * Small objects are served from the {@link HotFileCache} instead, without touching the storage.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileDownloadService {
+
+    // Request attributes understood by Tomcat's NIO connectors
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    // Below this size a regular write is cheaper than setting up sendfile (same default as Tomcat)
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    private static final String CRLF = "\r\n";
+
+    // Private: thumbnails of private files must not end up in shared caches
+    private static final String IMMUTABLE_CACHE_CONTROL = "private, max-age=31536000, immutable";
+
+    private final StorageBackend storageBackend;
+    private final MeterRegistry meterRegistry;
+    private final CompressionService compressionService;
+    private final HotFileCache hotFileCache;
+    private final MimeTypeRegistry mimeTypeRegistry;
+
+    private Meter.MeterProvider<Timer> downloadTimers;
+    private DistributionSummary downloadedBytes;
+
+    @PostConstruct
+    void init() {
+        downloadTimers = Timer.builder("plumeo.file.download")
+                .description("Time to serve a file download")
+                .publishPercentileHistogram()
+                .withRegistry(meterRegistry);
+        downloadedBytes = DistributionSummary.builder("plumeo.file.download.size")
+                .description("Size of download response bodies")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Write a stored file to the response.
+     * Handles If-None-Match/If-Modified-Since (304), If-Match/If-Unmodified-Since (412),
+     * single and multiple byte ranges (206) and unsatisfiable ranges (416).
+     *
+     * @param file       the file metadata
+     * @param attachment whether the file should be downloaded rather than displayed
+     * @param request    the current request
+     * @param response   the current response
+     */
+    public void streamFile(File file, boolean attachment, HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        // With sendfile the transfer happens after this method returns and is not included
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            writeFile(file, attachment, request, response);
+        } finally {
+            sample.stop(downloadTimers.withTag("status", String.valueOf(response.getStatus())));
+        }
+    }
+
+    private void writeFile(File file, boolean attachment, HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        String key = file.getFilePath();
+        long length = file.getFileSize() != null ? file.getFileSize() : storageBackend.size(key);
+        long lastModified = getLastModified(file).toEpochMilli();
+        String etag = buildETag(file, length, lastModified);
+        // Resolved before switching to a variant, which has no content type of its own
+        String contentType = resolveContentType(file);
+
+        boolean gzip = false;
+        if (compressionService.isCandidate(file)) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(request)) {
+                Long gzipSize = file.getGzipSize();
+                if (gzipSize == null) {
+                    // Served uncompressed this time
+                    compressionService.precompressAsync(file);
+                } else if (gzipSize >= 0) {
+                    gzip = true;
+                    compressionService.recordServed(length, gzipSize);
+                    key = compressionService.variantKey(file.getChecksumSha256());
+                    length = gzipSize;
+                    // Each representation needs its own strong ETag
+                    etag = etag.substring(0, etag.length() - 1) + "-" + CompressionService.GZIP + "\"";
+                }
+            }
+        }
+
+        // Sets the ETag and Last-Modified headers, and the 304/412 status when applicable.
+        // Answered from the metadata alone, before any access to the storage.
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        ByteBuffer cached;
+        try {
+            cached = hotFileCache.get(key, length);
+        } catch (NoSuchFileException e) {
+            throw new RuntimeException("File not found on disk");
+        }
+
+        // Null when the object is cached or not on a local file system
+        Path path = cached == null ? storageBackend.localPath(key).orElse(null) : null;
+
+        if (path != null && !Files.isReadable(path)) {
+            throw new RuntimeException("File not found on disk");
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, CompressionService.GZIP);
+        }
+        if (attachment) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"" + file.getOriginalFileName() + "\"");
+        }
+
+        List<long[]> regions;
+        try {
+            regions = resolveRegions(request, etag, lastModified, length);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
+
+        boolean writeBody = !HttpMethod.HEAD.matches(request.getMethod());
+
+        if (regions.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (writeBody) {
+                writeRegion(key, path, cached, 0, length, request, response);
+                recordDownloadedBytes(length);
+            }
+        } else if (regions.size() == 1) {
+            long start = regions.get(0)[0];
+            long end = regions.get(0)[1];
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (writeBody) {
+                writeRegion(key, path, cached, start, end - start + 1, request, response);
+                recordDownloadedBytes(end - start + 1);
+            }
+        } else {
+            writeMultipartRegions(key, path, cached, contentType, length, regions, writeBody, response);
+        }
+    }
+
+    /**
+     * Write a whole stored object that never changes once written, such as a thumbnail.
+     * Handles If-None-Match (304) and lets clients cache the object for a long time.
+     *
+     * @param key         the storage key
+     * @param contentType the object content type
+     * @param etag        a strong ETag identifying the object
+     */
+    public void streamImmutableObject(String key, String contentType, String etag, HttpServletRequest request,
+                                      HttpServletResponse response) throws IOException {
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return;
+        }
+
+        ByteBuffer cached = hotFileCache.getIfPresent(key);
+        long length = cached != null ? cached.remaining() : storageBackend.size(key);
+        if (cached == null) {
+            cached = hotFileCache.get(key, length);
+        }
+        Path path = cached == null ? storageBackend.localPath(key).orElse(null) : null;
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(contentType);
+        response.setContentLengthLong(length);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL);
+        if (!HttpMethod.HEAD.matches(request.getMethod())) {
+            writeRegion(key, path, cached, 0, length, request, response);
+            recordDownloadedBytes(length);
+        }
+    }
+
+    /**
+     * Build a strong ETag from the stored metadata. Files with a checksum use their SHA-256,
+     * which stays valid across copies of the same content. Older files are never modified
+     * in place either, so their ID, size and modification date identify the content.
+     */
+    public String buildETag(File file, long length, long lastModified) {
+        if (file.getChecksumSha256() != null) {
+            return "\"" + file.getChecksumSha256() + "\"";
+        }
+        return "\"" + file.getId() + "-" + length + "-" + lastModified + "\"";
+    }
+
+    /**
+     * Whether the Accept-Encoding header allows gzip, explicitly or through a wildcard.
+     */
+    private boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase(CompressionService.GZIP) || name.equals("*")) {
+                // gzip;q=0 refuses it
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0{0,3})?");
+            }
+        }
+        return false;
+    }
+
+    private Instant getLastModified(File file) {
+        return file.getUpdatedAt() != null ? file.getUpdatedAt() : file.getCreatedAt();
+    }
+
+    /**
+     * Use the MIME type detected at upload, never the file system: files stored without one
+     * fall back to their extension.
+     */
+    private String resolveContentType(File file) {
+        return file.getMimeType() != null
+                ? file.getMimeType()
+                : mimeTypeRegistry.fromExtension(file.getFileExtension());
+    }
+
+    /**
+     * Resolve the requested byte ranges as inclusive [start, end] pairs.
+     * An empty list means the whole file must be sent.
+     *
+     * @throws IllegalArgumentException if the ranges cannot be satisfied
+     */
+    private List<long[]> resolveRegions(HttpServletRequest request, String etag, long lastModified, long length) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !isIfRangeSatisfied(request, etag, lastModified)) {
+            return List.of();
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // Malformed Range headers are ignored, as allowed by RFC 9110
+            return List.of();
+        }
+
+        if (length == 0) {
+            throw new IllegalArgumentException("Empty file");
+        }
+
+        List<long[]> regions = new ArrayList<>(ranges.size());
+        long total = 0;
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            regions.add(new long[]{start, end});
+            total += end - start + 1;
+        }
+
+        // Overlapping ranges asking for more than the file itself are served as a full response
+        if (regions.size() > 1 && total > length) {
+            return List.of();
+        }
+        return regions;
+    }
+
+    private boolean isIfRangeSatisfied(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void writeRegion(String key, Path path, ByteBuffer cached, long start, long count,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (cached != null) {
+            Channels.newChannel(response.getOutputStream()).write(slice(cached, start, count));
+            return;
+        }
+
+        if (path == null) {
+            try (InputStream in = openRemote(key, start, count)) {
+                in.transferTo(response.getOutputStream());
+            }
+            return;
+        }
+
+        if (count >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            // Tomcat sends the region with sendfile once the response is committed
+            request.setAttribute(SENDFILE_FILENAME_ATTR, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            transfer(channel, start, count, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private void writeMultipartRegions(String key, Path path, ByteBuffer cached, String contentType, long length,
+                                       List<long[]> regions, boolean writeBody,
+                                       HttpServletResponse response) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+
+        List<byte[]> partHeaders = new ArrayList<>(regions.size());
+        long contentLength = 0;
+        for (long[] region : regions) {
+            byte[] partHeader = (CRLF + "--" + boundary + CRLF
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + CRLF
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + region[0] + "-" + region[1] + "/" + length + CRLF
+                    + CRLF).getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + region[1] - region[0] + 1;
+        }
+        byte[] closingBoundary = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        contentLength += closingBoundary.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+
+        if (!writeBody) {
+            return;
+        }
+        recordDownloadedBytes(contentLength);
+
+        ServletOutputStream out = response.getOutputStream();
+        if (cached != null) {
+            WritableByteChannel target = Channels.newChannel(out);
+            for (int i = 0; i < regions.size(); i++) {
+                long[] region = regions.get(i);
+                out.write(partHeaders.get(i));
+                target.write(slice(cached, region[0], region[1] - region[0] + 1));
+            }
+            out.write(closingBoundary);
+            return;
+        }
+
+        if (path == null) {
+            for (int i = 0; i < regions.size(); i++) {
+                long[] region = regions.get(i);
+                out.write(partHeaders.get(i));
+                try (InputStream in = openRemote(key, region[0], region[1] - region[0] + 1)) {
+                    in.transferTo(out);
+                }
+            }
+            out.write(closingBoundary);
+            return;
+        }
+
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (int i = 0; i < regions.size(); i++) {
+                long[] region = regions.get(i);
+                out.write(partHeaders.get(i));
+                transfer(channel, region[0], region[1] - region[0] + 1, target);
+            }
+        }
+        out.write(closingBoundary);
+    }
+
+    private ByteBuffer slice(ByteBuffer content, long start, long count) {
+        return content.slice((int) start, (int) count);
+    }
+
+    private void recordDownloadedBytes(long bytes) {
+        downloadedBytes.record(bytes);
+    }
+
+    private InputStream openRemote(String key, long start, long count) throws IOException {
+        try {
+            return storageBackend.read(key, start, count);
+        } catch (NoSuchFileException e) {
+            throw new RuntimeException("File not found in storage");
+        }
+    }
+
+    private void transfer(FileChannel channel, long position, long count, WritableByteChannel target) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long transferred = channel.transferTo(position, remaining, target);
+            if (transferred <= 0) {
+                // The file is shorter than its metadata says
+                log.warn("Unexpected end of file while streaming, {} bytes missing", remaining);
+                break;
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+}
@@ -1,91 +1,474 @@
 package fr.shawiizz.plumeo.service;
 
+import fr.shawiizz.plumeo.dto.response.BatchUploadItemResponse;
+import fr.shawiizz.plumeo.dto.response.BatchUploadResponse;
+import fr.shawiizz.plumeo.dto.response.FileInfoResponse;
+import fr.shawiizz.plumeo.dto.response.FilePageResponse;
 import fr.shawiizz.plumeo.dto.response.FileUploadResponse;
 import fr.shawiizz.plumeo.entity.File;
 import fr.shawiizz.plumeo.entity.User;
+import fr.shawiizz.plumeo.exception.FileTooLargeException;
+import fr.shawiizz.plumeo.exception.StorageQuotaExceededException;
 import fr.shawiizz.plumeo.repository.FileRepository;
+import fr.shawiizz.plumeo.repository.FileRepositoryCustom.FileListing;
+import fr.shawiizz.plumeo.repository.FileRepositoryCustom.FileSelection;
+import fr.shawiizz.plumeo.repository.FileRepositoryCustom.StoredFile;
+import fr.shawiizz.plumeo.util.MimeTypeRegistry;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
-import java.util.HashMap;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class FileService {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final FileRepository fileRepository;
+    private final BlobStore blobStore;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ThumbnailService thumbnailService;
+    private final CompressionService compressionService;
+    private final MimeTypeRegistry mimeTypeRegistry;
+    private final StorageQuotaService storageQuotaService;
 
     @Value("${file.upload.dir:/app/plumeo}")
     private String uploadDir;
 
+    @Value("${file.max-size:10MB}")
+    private DataSize maxFileSize;
+
+    @Value("${file.batch.max-files:200}")
+    private int maxBatchFiles;
+
+    // Parts read, hashed and staged at once per batch
+    @Value("${file.batch.parallelism:4}")
+    private int batchParallelism;
+
+    // Files deleted per transaction, and IDs accepted per bulk request
+    @Value("${file.bulk.batch-size:1000}")
+    private int bulkBatchSize;
+
+    private Timer uploadSuccessTimer;
+    private Timer uploadFailureTimer;
+    private Timer batchUploadTimer;
+    private DistributionSummary uploadedBytes;
+
+    @PostConstruct
+    void init() {
+        uploadSuccessTimer = uploadTimer("success");
+        uploadFailureTimer = uploadTimer("failure");
+        batchUploadTimer = Timer.builder("plumeo.file.upload.batch")
+                .description("Time to receive, hash and store a batch of uploaded files")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        uploadedBytes = DistributionSummary.builder("plumeo.file.upload.size")
+                .description("Size of stored files")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Timer uploadTimer(String outcome) {
+        return Timer.builder("plumeo.file.upload")
+                .description("Time to receive, hash and store an uploaded file")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
     public FileUploadResponse uploadFile(MultipartFile file, User author, Boolean isPrivate) {
+        // Validation du fichier
+        validateFile(file);
+
+        try (InputStream content = file.getInputStream()) {
+            return uploadStream(content, file.getOriginalFilename(), file.getContentType(), author, isPrivate);
+        } catch (IOException e) {
+            log.error("Error uploading file for user {}: {}", author.getId(), e.getMessage());
+            throw new RuntimeException("Failed to upload file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Store a file read directly from a stream, in a single pass.
+     * Size, SHA-256 and CRC32C are computed while streaming, the size limit and the storage quota are
+     * enforced before the data hits the disk, and the file only appears at its final location once complete.
+     *
+     * @param content          the file content, read once and not closed
+     * @param originalFileName the original file name
+     * @param contentType      the content type given by the client, may be null
+     * @param author           the file owner
+     * @param isPrivate        whether the file is private
+     * @return the stored file information
+     */
+    public FileUploadResponse uploadStream(InputStream content, String originalFileName, String contentType,
+                                           User author, Boolean isPrivate) {
+        if (originalFileName == null || originalFileName.trim().isEmpty()) {
+            throw new RuntimeException("File name is required");
+        }
+        long remainingQuota = storageQuotaService.getRemaining(author.getId());
+        if (remainingQuota == 0) {
+            throw new StorageQuotaExceededException();
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Timer timer = uploadFailureTimer;
+        Path stagedFile = null;
         try {
-            // Validation du fichier
-            validateFile(file);
+            stagedFile = createStagingFile();
+            StoredContent stored = storeStream(content, stagedFile, remainingQuota);
 
-            // Génération de l'ID unique
-            String fileId = UUID.randomUUID().toString();
-            
-            // Extraction de l'extension originale
-            String originalFileName = file.getOriginalFilename();
-            String fileExtension = getFileExtension(originalFileName);
-            
-            // Détection du type MIME
-            String mimeType = detectMimeType(file, originalFileName);
-            
-            // Création du répertoire utilisateur
-            Path userDir = createUserDirectory(author.getId());
-            
-            // Sauvegarde physique du fichier (renommé avec l'ID)
-            String physicalFileName = fileId + (fileExtension.isEmpty() ? "" : "." + fileExtension);
-            Path filePath = userDir.resolve(physicalFileName);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-            // Sauvegarde en base de données
-            File fileEntity = new File();
-            fileEntity.setId(fileId);
-            fileEntity.setAuthor(author);
-            fileEntity.setFileName(physicalFileName);
-            fileEntity.setOriginalFileName(originalFileName);
-            fileEntity.setFilePath(filePath.toString());
-            fileEntity.setFileExtension(fileExtension);
-            fileEntity.setMimeType(mimeType);
-            fileEntity.setFileSize(file.getSize());
-            fileEntity.setIsPrivate(isPrivate != null ? isPrivate : false);
-            fileEntity.setCreatedAt(Instant.now());
-
-            File savedFile = fileRepository.save(fileEntity);
-
-            log.info("File uploaded successfully: {} by user {}", fileId, author.getId());
-
-            return new FileUploadResponse(
-                    savedFile.getId(),
-                    savedFile.getOriginalFileName(),
-                    savedFile.getFileExtension(),
-                    savedFile.getMimeType(),
-                    savedFile.getFileSize(),
-                    savedFile.getIsPrivate(),
-                    savedFile.getCreatedAt().toEpochMilli()
-            );
+            FileUploadResponse response = importStagedFile(stagedFile, originalFileName, contentType,
+                    stored, author, isPrivate);
+            timer = uploadSuccessTimer;
+            return response;
 
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             log.error("Error uploading file for user {}: {}", author.getId(), e.getMessage());
             throw new RuntimeException("Failed to upload file: " + e.getMessage());
+        } finally {
+            deleteStagingFile(stagedFile);
+            sample.stop(timer);
+        }
+    }
+
+    /**
+     * Store a fully written staging file in the blob store and register it.
+     * Content already stored by any user is not written again. The content is written first, then
+     * referenced in a short transaction; if that transaction fails, the written object is reclaimed.
+     * Must be called without a transaction, so that no connection is held while writing.
+     *
+     * @param stagedFile       the staging file, see {@link #createStagingFile()}, consumed once written
+     * @param originalFileName the original file name
+     * @param contentType      the content type given by the client, may be null
+     * @param stored           size, checksums and first bytes of the content
+     * @param author           the file owner
+     * @param isPrivate        whether the file is private
+     * @return the stored file information
+     * @throws IOException if the content could not be written
+     */
+    public FileUploadResponse importStagedFile(Path stagedFile, String originalFileName, String contentType,
+                                               StoredContent stored, User author, Boolean isPrivate) throws IOException {
+        return importStagedFile(stagedFile, originalFileName, contentType, stored, author, isPrivate, () -> {
+        });
+    }
+
+    /**
+     * Same as {@link #importStagedFile(Path, String, String, StoredContent, User, Boolean)}, also running
+     * the given work in the transaction registering the file, such as deleting what it was staged from.
+     *
+     * @param inTransaction run last in the transaction, throws to roll the import back
+     */
+    public FileUploadResponse importStagedFile(Path stagedFile, String originalFileName, String contentType,
+                                               StoredContent stored, User author, Boolean isPrivate,
+                                               Runnable inTransaction) throws IOException {
+        String writtenKey = blobStore.write(stagedFile, stored.sha256());
+
+        // Référence au blob, sauvegarde en base et quota dans la même transaction,
+        // le quota en dernier pour ne garder son verrou que jusqu'au commit
+        File savedFile;
+        try {
+            savedFile = transactionTemplate.execute(status -> {
+                File file = fileRepository.save(acquireFile(writtenKey, originalFileName, contentType, stored, author, isPrivate));
+                inTransaction.run();
+                storageQuotaService.charge(author.getId(), stored.size(), 1);
+                return file;
+            });
+        } catch (RuntimeException e) {
+            discardWritten(Collections.singletonList(writtenKey));
+            throw e;
         }
+
+        return completeUpload(savedFile);
+    }
+
+    /**
+     * Store several uploaded files at once. Parts are read, hashed and written to the storage in parallel,
+     * then all blobs are acquired and the file rows inserted in a single short transaction, as JDBC batches.
+     * An invalid or unreadable part fails alone, the others are still stored, as does a part that no longer
+     * fits in the storage quota once the previous ones are counted; if the transaction fails, every part
+     * that reached it fails with it, and the objects written for them are reclaimed.
+     *
+     * @param files     the uploaded parts, at most {@code file.batch.max-files}
+     * @param author    the files owner
+     * @param isPrivate whether the files are private
+     * @return one result per part, in request order
+     */
+    public BatchUploadResponse uploadBatch(List<MultipartFile> files, User author, Boolean isPrivate) {
+        if (files == null || files.isEmpty()) {
+            throw new RuntimeException("No file to upload");
+        }
+        if (files.size() > maxBatchFiles) {
+            throw new RuntimeException("Too many files in one batch, the maximum is " + maxBatchFiles);
+        }
+
+        long remainingQuota = storageQuotaService.getRemaining(author.getId());
+        if (remainingQuota == 0) {
+            throw new StorageQuotaExceededException();
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<StagedPart> parts = stageParts(files, remainingQuota);
+        BatchUploadItemResponse[] results = new BatchUploadItemResponse[files.size()];
+        try {
+            // Parts comptées dans l'ordre de la requête, celles qui dépassent le quota échouent
+            List<StagedPart> accepted = new ArrayList<>(parts.size());
+            List<String> discarded = new ArrayList<>();
+            long acceptedBytes = 0;
+            for (StagedPart part : parts) {
+                if (part.error() != null) {
+                    results[part.index()] = failure(part, part.error());
+                } else if (acceptedBytes + part.stored().size() > remainingQuota) {
+                    results[part.index()] = failure(part, "Storage quota exceeded");
+                    discarded.add(part.writtenKey());
+                } else {
+                    accepted.add(part);
+                    acceptedBytes += part.stored().size();
+                }
+            }
+            long batchBytes = acceptedBytes;
+
+            // Verrouillage des blobs toujours dans le même ordre, pour éviter les interblocages entre lots
+            List<StagedPart> staged = accepted.stream()
+                    .sorted(Comparator.comparing(part -> part.stored().sha256()))
+                    .toList();
+
+            List<File> savedFiles = List.of();
+            if (!staged.isEmpty()) {
+                try {
+                    savedFiles = transactionTemplate.execute(status -> {
+                        List<File> entities = new ArrayList<>(staged.size());
+                        for (StagedPart part : staged) {
+                            entities.add(acquireFile(part.writtenKey(), part.originalFileName(), part.contentType(),
+                                    part.stored(), author, isPrivate));
+                        }
+                        List<File> saved = fileRepository.saveAll(entities);
+                        storageQuotaService.charge(author.getId(), batchBytes, staged.size());
+                        return saved;
+                    });
+                } catch (RuntimeException e) {
+                    log.error("Error storing batch upload for user {}: {}", author.getId(), e.getMessage());
+                    for (StagedPart part : staged) {
+                        results[part.index()] = failure(part, "Failed to upload file: " + e.getMessage());
+                        discarded.add(part.writtenKey());
+                    }
+                }
+            }
+            discardWritten(discarded);
+
+            for (int i = 0; i < savedFiles.size(); i++) {
+                StagedPart part = staged.get(i);
+                results[part.index()] = new BatchUploadItemResponse(part.index(), part.originalFileName(),
+                        true, completeUpload(savedFiles.get(i)), null);
+            }
+        } finally {
+            parts.forEach(part -> deleteStagingFile(part.stagedFile()));
+            sample.stop(batchUploadTimer);
+        }
+
+        int uploaded = (int) Arrays.stream(results).filter(BatchUploadItemResponse::success).count();
+        log.info("Batch upload by user {}: {} stored, {} failed", author.getId(), uploaded, results.length - uploaded);
+        return new BatchUploadResponse(List.of(results), uploaded, results.length - uploaded);
+    }
+
+    /**
+     * Stage and write every part with a bounded number of virtual threads.
+     */
+    private List<StagedPart> stageParts(List<MultipartFile> files, long remainingQuota) {
+        List<Future<StagedPart>> futures = new ArrayList<>(files.size());
+        try (ExecutorService executor = Executors.newFixedThreadPool(batchParallelism,
+                Thread.ofVirtual().name("batch-upload-", 0).factory())) {
+            for (int i = 0; i < files.size(); i++) {
+                int index = i;
+                MultipartFile file = files.get(i);
+                futures.add(executor.submit(() -> stagePart(index, file, remainingQuota)));
+            }
+        }
+
+        List<StagedPart> parts = new ArrayList<>(futures.size());
+        for (Future<StagedPart> future : futures) {
+            try {
+                parts.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Upload interrupted");
+            } catch (ExecutionException e) {
+                // stagePart ne lève pas d'exception, hormis les erreurs graves
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return parts;
+    }
+
+    private StagedPart stagePart(int index, MultipartFile file, long remainingQuota) {
+        Path stagedFile = null;
+        try {
+            validateFile(file);
+            stagedFile = createStagingFile();
+            StoredContent stored;
+            try (InputStream content = file.getInputStream()) {
+                stored = storeStream(content, stagedFile, remainingQuota);
+            }
+            String writtenKey = blobStore.write(stagedFile, stored.sha256());
+            return new StagedPart(index, file.getOriginalFilename(), file.getContentType(), stagedFile, stored,
+                    writtenKey, null);
+        } catch (IOException | RuntimeException e) {
+            deleteStagingFile(stagedFile);
+            return new StagedPart(index, file.getOriginalFilename(), file.getContentType(), null, null, null,
+                    e.getMessage());
+        }
+    }
+
+    private BatchUploadItemResponse failure(StagedPart part, String error) {
+        return new BatchUploadItemResponse(part.index(), part.originalFileName(), false, null, error);
+    }
+
+    /**
+     * Queue the deletion of objects written for uploads that were not committed.
+     * Left to the orphan sweep if even that fails.
+     */
+    private void discardWritten(List<String> writtenKeys) {
+        if (writtenKeys.stream().allMatch(Objects::isNull)) {
+            return;
+        }
+        try {
+            blobStore.discard(writtenKeys);
+        } catch (RuntimeException e) {
+            log.warn("Could not queue the deletion of {} uploaded objects: {}", writtenKeys.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Reference the blob of written content and build its row, within the current transaction.
+     *
+     * @param writtenKey the key returned by {@link BlobStore#write}
+     */
+    private File acquireFile(String writtenKey, String originalFileName, String contentType, StoredContent stored,
+                             User author, Boolean isPrivate) {
+        String sha256 = stored.sha256();
+
+        // Extraction de l'extension originale
+        String fileExtension = getFileExtension(originalFileName);
+
+        // Détection du type MIME, les premiers octets l'emportent sur le type déclaré
+        String mimeType = mimeTypeRegistry.detect(contentType, fileExtension, stored.head());
+
+        String storageKey;
+        try {
+            storageKey = blobStore.acquire(sha256, stored.size(), stored.crc32c(), writtenKey);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        File fileEntity = new File();
+        // Génération de l'ID unique
+        fileEntity.setId(UUID.randomUUID().toString());
+        fileEntity.setAuthor(author);
+        fileEntity.setFileName(sha256);
+        fileEntity.setOriginalFileName(originalFileName);
+        fileEntity.setFilePath(storageKey);
+        fileEntity.setFileExtension(fileExtension);
+        fileEntity.setMimeType(mimeType);
+        fileEntity.setFileSize(stored.size());
+        fileEntity.setChecksumSha256(sha256);
+        fileEntity.setIsPrivate(isPrivate != null ? isPrivate : false);
+        fileEntity.setCreatedAt(Instant.now());
+        return fileEntity;
+    }
+
+    /**
+     * Start the background work on a committed file and describe it.
+     */
+    private FileUploadResponse completeUpload(File savedFile) {
+        log.info("File uploaded successfully: {} by user {}", savedFile.getId(), savedFile.getAuthor().getId());
+
+        // Miniatures et variante gzip générées en arrière-plan, ou à la première demande si la file est pleine
+        thumbnailService.generateAsync(savedFile);
+        compressionService.precompressAsync(savedFile);
+
+        uploadedBytes.record(savedFile.getFileSize());
+
+        return new FileUploadResponse(
+                savedFile.getId(),
+                savedFile.getOriginalFileName(),
+                savedFile.getFileExtension(),
+                savedFile.getMimeType(),
+                savedFile.getFileSize(),
+                savedFile.getIsPrivate(),
+                savedFile.getCreatedAt().toEpochMilli()
+        );
+    }
+
+    /**
+     * Create an empty staging file, on the same file system as the final file locations
+     * so it can be moved into place atomically.
+     */
+    public Path createStagingFile() throws IOException {
+        Path stagingDir = Paths.get(uploadDir, "tmp");
+        Files.createDirectories(stagingDir);
+        return Files.createTempFile(stagingDir, "upload-", ".part");
+    }
+
+    /**
+     * Delete a staging file if it is still there, logging failures.
+     */
+    public void deleteStagingFile(Path stagedFile) {
+        if (stagedFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(stagedFile);
+        } catch (IOException e) {
+            log.warn("Could not delete staging file {}: {}", stagedFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Get the maximum size of an uploaded file in bytes.
+     */
+    public long getMaxFileSize() {
+        return maxFileSize.toBytes();
     }
 
     public Optional<File> getFileById(String fileId) {
@@ -104,29 +487,148 @@ public class FileService {
         return fileRepository.findByAuthorAndIsPrivate(author, isPrivate);
     }
 
-    public boolean deleteFile(String fileId, User author) {
-        Optional<File> fileOpt = fileRepository.findByIdAndAuthor(fileId, author);
-        if (fileOpt.isPresent()) {
-            File file = fileOpt.get();
-            try {
-                // Suppression du fichier physique
-                Path filePath = Paths.get(file.getFilePath());
-                Files.deleteIfExists(filePath);
-                
-                // Suppression de la base de données
-                fileRepository.delete(file);
-                
-                log.info("File deleted successfully: {} by user {}", fileId, author.getId());
-                return true;
-            } catch (IOException e) {
-                log.error("Error deleting file {}: {}", fileId, e.getMessage());
-                throw new RuntimeException("Failed to delete file: " + e.getMessage());
+    /**
+     * List a user's files newest first, one page at a time.
+     *
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the page size, capped to {@value #MAX_PAGE_SIZE}
+     */
+    public FilePageResponse listFiles(User author, Boolean isPrivate, String mimeType, String extension,
+                                      String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        Instant afterCreatedAt = null;
+        String afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = decodeCursor(cursor);
+            afterCreatedAt = Instant.parse(position[0]);
+            afterId = position[1];
+        }
+
+        // Une ligne de plus pour savoir s'il reste une page
+        List<FileListing> listings = fileRepository.findFileInfos(author, isPrivate, mimeType,
+                extension != null ? extension.toLowerCase() : null, afterCreatedAt, afterId, pageSize + 1);
+
+        boolean hasMore = listings.size() > pageSize;
+        List<FileListing> page = hasMore ? listings.subList(0, pageSize) : listings;
+
+        String nextCursor = null;
+        if (hasMore) {
+            FileListing last = page.get(page.size() - 1);
+            nextCursor = encodeCursor(last.createdAt(), last.info().id());
+        }
+
+        List<FileInfoResponse> files = page.stream()
+                .map(FileListing::info)
+                .toList();
+        return new FilePageResponse(files, nextCursor, hasMore);
+    }
+
+    private String encodeCursor(Instant createdAt, String id) {
+        String position = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = position.split("\\|", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException();
             }
+            Instant.parse(parts[0]);
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new RuntimeException("Invalid cursor");
         }
-        return false;
     }
 
+    /**
+     * Delete a file of an author. Only rows are written: the stored content is deleted in the background
+     * by the {@link StorageReclaimer} once the transaction is committed.
+     */
+    @Transactional
+    public boolean deleteFile(String fileId, User author) {
+        List<StoredFile> files = fileRepository.lockStoredFiles(author,
+                new FileSelection(List.of(fileId), null, null, null), 1);
+        if (files.isEmpty()) {
+            return false;
+        }
+
+        // Libération du blob, son contenu est supprimé avec sa dernière référence
+        blobStore.releaseAll(files);
+        storageQuotaService.refund(author.getId(), totalSize(files), files.size());
+
+        // Suppression de la base de données
+        fileRepository.deleteByAuthorAndIdIn(author, List.of(fileId));
+
+        log.info("File deleted successfully: {} by user {}", fileId, author.getId());
+        return true;
+    }
+
+    /**
+     * Delete many files of an author with set-based statements, one transaction per batch of
+     * {@code file.bulk.batch-size} files. Stored objects are removed afterwards by the {@link StorageReclaimer}.
+     *
+     * @return the number of files deleted
+     */
+    public int deleteFiles(User author, FileSelection selection) {
+        FileSelection normalized = normalizeSelection(selection);
+        int deleted = 0;
+        int batchDeleted;
+        do {
+            batchDeleted = Optional.ofNullable(transactionTemplate.execute(status -> {
+                List<StoredFile> files = fileRepository.lockStoredFiles(author, normalized, bulkBatchSize);
+                if (files.isEmpty()) {
+                    return 0;
+                }
+                blobStore.releaseAll(files);
+                storageQuotaService.refund(author.getId(), totalSize(files), files.size());
+                return fileRepository.deleteByAuthorAndIdIn(author, files.stream().map(StoredFile::id).toList());
+            })).orElse(0);
+            deleted += batchDeleted;
+            // Une sélection par IDs tient toujours dans un seul lot
+        } while (normalized.ids() == null && batchDeleted == bulkBatchSize);
+
+        log.info("{} files deleted by user {}", deleted, author.getId());
+        return deleted;
+    }
+
+    /**
+     * Make many files of an author private or public in a single statement.
+     *
+     * @return the number of files whose privacy changed
+     */
+    @Transactional
+    public int updatePrivacy(User author, FileSelection selection, boolean isPrivate) {
+        int updated = fileRepository.updatePrivacy(author, normalizeSelection(selection), isPrivate);
+        log.info("{} files made {} by user {}", updated, isPrivate ? "private" : "public", author.getId());
+        return updated;
+    }
+
+    private static long totalSize(List<StoredFile> files) {
+        return files.stream()
+                .mapToLong(file -> file.fileSize() != null ? file.fileSize() : 0)
+                .sum();
+    }
 
+    private FileSelection normalizeSelection(FileSelection selection) {
+        List<String> ids = selection.ids() != null && !selection.ids().isEmpty()
+                ? selection.ids().stream().distinct().toList()
+                : null;
+        String mimeType = selection.mimeType() != null && !selection.mimeType().isBlank() ? selection.mimeType() : null;
+        String extension = selection.extension() != null && !selection.extension().isBlank()
+                ? selection.extension().toLowerCase()
+                : null;
+
+        if (ids == null && selection.isPrivate() == null && mimeType == null && extension == null) {
+            throw new RuntimeException("File IDs or at least one filter are required");
+        }
+        if (ids != null && ids.size() > bulkBatchSize) {
+            throw new RuntimeException("Too many files, the maximum is " + bulkBatchSize);
+        }
+        return new FileSelection(ids, selection.isPrivate(), mimeType, extension);
+    }
 
     private void validateFile(MultipartFile file) {
         if (file.isEmpty()) {
@@ -137,14 +639,95 @@ public class FileService {
             throw new RuntimeException("File name is required");
         }
         
-        // Vérification de la taille (10MB max par défaut)
-        long maxSize = 10 * 1024 * 1024; // 10MB
-        if (file.getSize() > maxSize) {
-            throw new RuntimeException("File size exceeds maximum allowed size");
+        // Vérification de la taille (file.max-size)
+        if (file.getSize() > getMaxFileSize()) {
+            throw new FileTooLargeException();
+        }
+    }
+
+    /**
+     * Copy a stream to a staging file, computing size, SHA-256 and CRC32C on the fly
+     * with a fixed-size buffer. The first bytes are kept for type detection.
+     *
+     * @param remainingQuota the bytes the author may still store
+     */
+    StoredContent storeStream(InputStream content, Path stagedFile, long remainingQuota) throws IOException {
+        long maxSize = Math.min(getMaxFileSize(), remainingQuota);
+        MessageDigest digest = newSha256Digest();
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] head = new byte[MimeTypeRegistry.SNIFF_LENGTH];
+        long size = 0;
+
+        try (OutputStream out = Files.newOutputStream(stagedFile, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                keepHead(head, size, buffer, read);
+                size += read;
+                // Limite appliquée pendant le transfert, pas après coup
+                if (size > maxSize) {
+                    if (size > remainingQuota) {
+                        throw new StorageQuotaExceededException();
+                    }
+                    throw new FileTooLargeException();
+                }
+                digest.update(buffer, 0, read);
+                crc.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        }
+
+        if (size == 0) {
+            throw new RuntimeException("File is empty");
+        }
+
+        return new StoredContent(size, HexFormat.of().formatHex(digest.digest()), crc.getValue(), truncate(head, size));
+    }
+
+    /**
+     * Compute size, SHA-256 and CRC32C of a file already on disk, in a single read,
+     * keeping the first bytes for type detection.
+     */
+    StoredContent computeChecksums(Path path) throws IOException {
+        MessageDigest digest = newSha256Digest();
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] head = new byte[MimeTypeRegistry.SNIFF_LENGTH];
+        long size = 0;
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                keepHead(head, size, buffer, read);
+                size += read;
+                digest.update(buffer, 0, read);
+                crc.update(buffer, 0, read);
+            }
+        }
+        return new StoredContent(size, HexFormat.of().formatHex(digest.digest()), crc.getValue(), truncate(head, size));
+    }
+
+    /**
+     * Copy the part of a chunk read at the given offset that falls within the first bytes.
+     */
+    private static void keepHead(byte[] head, long offset, byte[] chunk, int length) {
+        if (offset < head.length) {
+            System.arraycopy(chunk, 0, head, (int) offset, (int) Math.min(length, head.length - offset));
+        }
+    }
+
+    private static byte[] truncate(byte[] head, long size) {
+        return size < head.length ? Arrays.copyOf(head, (int) size) : head;
+    }
+
+    private static MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 
-    private String getFileExtension(String fileName) {
+    String getFileExtension(String fileName) {
         if (fileName == null || fileName.isEmpty()) {
             return "";
         }
@@ -157,77 +740,13 @@ public class FileService {
         return fileName.substring(lastDotIndex + 1).toLowerCase();
     }
 
-    private String detectMimeType(MultipartFile file, String originalFileName) {
-        // Priorité au Content-Type fourni par le client
-        String clientMimeType = file.getContentType();
-        if (clientMimeType != null && !clientMimeType.equals("application/octet-stream")) {
-            return clientMimeType;
-        }
-        
-        // Détection basée sur l'extension avec une map simple
-        if (originalFileName != null) {
-            String extension = getFileExtension(originalFileName);
-            return getMimeTypeFromExtension(extension);
-        }
-        
-        return "application/octet-stream";
-    }
-
-    private String getMimeTypeFromExtension(String extension) {
-        Map<String, String> mimeTypes = new HashMap<>();
-        
-        // Images
-        mimeTypes.put("jpg", "image/jpeg");
-        mimeTypes.put("jpeg", "image/jpeg");
-        mimeTypes.put("png", "image/png");
-        mimeTypes.put("gif", "image/gif");
-        mimeTypes.put("bmp", "image/bmp");
-        mimeTypes.put("webp", "image/webp");
-        mimeTypes.put("svg", "image/svg+xml");
-        
-        // Documents
-        mimeTypes.put("pdf", "application/pdf");
-        mimeTypes.put("doc", "application/msword");
-        mimeTypes.put("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
-        mimeTypes.put("xls", "application/vnd.ms-excel");
-        mimeTypes.put("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-        mimeTypes.put("ppt", "application/vnd.ms-powerpoint");
-        mimeTypes.put("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation");
-        
-        // Texte
-        mimeTypes.put("txt", "text/plain");
-        mimeTypes.put("html", "text/html");
-        mimeTypes.put("css", "text/css");
-        mimeTypes.put("js", "application/javascript");
-        mimeTypes.put("json", "application/json");
-        mimeTypes.put("xml", "application/xml");
-        
-        // Audio
-        mimeTypes.put("mp3", "audio/mpeg");
-        mimeTypes.put("wav", "audio/wav");
-        mimeTypes.put("ogg", "audio/ogg");
-        
-        // Vidéo
-        mimeTypes.put("mp4", "video/mp4");
-        mimeTypes.put("avi", "video/x-msvideo");
-        mimeTypes.put("mov", "video/quicktime");
-        
-        // Archives
-        mimeTypes.put("zip", "application/zip");
-        mimeTypes.put("rar", "application/x-rar-compressed");
-        mimeTypes.put("7z", "application/x-7z-compressed");
-        
-        return mimeTypes.getOrDefault(extension.toLowerCase(), "application/octet-stream");
+    private record StagedPart(int index, String originalFileName, String contentType, Path stagedFile,
+                              StoredContent stored, String writtenKey, String error) {
     }
 
-    private Path createUserDirectory(String userId) throws IOException {
-        Path userDir = Paths.get(uploadDir, "users", userId);
-        
-        if (!Files.exists(userDir)) {
-            Files.createDirectories(userDir);
-            log.info("Created user directory: {}", userDir);
-        }
-        
-        return userDir;
+    /**
+     * @param head the first bytes of the content, at most {@link MimeTypeRegistry#SNIFF_LENGTH}
+     */
+    record StoredContent(long size, String sha256, long crc32c, byte[] head) {
     }
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package fr.shawiizz.plumeo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fr.shawiizz.plumeo.storage.StorageBackend;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * In-memory copies of small, frequently downloaded stored objects, keyed by storage key.
+ * <p>
+ * Contents are held in heap buffers weighed by their size, so the cache is bounded by the heap
+ * like everything else and released by the regular GC. Caffeine's W-TinyLFU policy only admits a new
+ * object over the ones it would evict when it is requested more often, so a scan of one-off downloads
+ * does not flush popular files. Objects are read outside of the cache, never under its locks: two
+ * concurrent misses may read the same small object twice, and the first copy inserted wins. Stored
+ * objects are never modified in place, entries only have to be dropped when their object is deleted.
+ */
+@Component
+@RequiredArgsConstructor
+public class HotFileCache {
+
+    private final StorageBackend storageBackend;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${file.cache.enabled:true}")
+    private boolean enabled;
+
+    // Total size of the cached contents
+    @Value("${file.cache.max-size:64MB}")
+    private DataSize maxSize;
+
+    @Value("${file.cache.max-object-size:256KB}")
+    private DataSize maxObjectSize;
+
+    private Cache<String, ByteBuffer> objects;
+
+    @PostConstruct
+    void init() {
+        objects = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, ByteBuffer content) -> content.capacity())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, objects, "file.hot-cache");
+        Gauge.builder("plumeo.file.cache.weight", objects, cache -> cache.policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0))
+                        .orElse(0L))
+                .description("Bytes of content held by the hot file cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Get the content of an object, reading it into the cache on a miss.
+     *
+     * @param key  the storage key
+     * @param size the object size, as recorded in the metadata
+     * @return a read-only buffer over the whole content, or null if the object is not cacheable
+     */
+    public ByteBuffer get(String key, long size) throws IOException {
+        if (!enabled || size > maxObjectSize.toBytes()) {
+            return null;
+        }
+        ByteBuffer content = objects.getIfPresent(key);
+        if (content == null) {
+            ByteBuffer loaded = load(key, size);
+            content = objects.asMap().putIfAbsent(key, loaded);
+            if (content == null) {
+                content = loaded;
+            }
+        }
+        return content.duplicate();
+    }
+
+    /**
+     * Get the content of an object if it is cached, without reading the storage.
+     */
+    public ByteBuffer getIfPresent(String key) {
+        ByteBuffer content = enabled ? objects.getIfPresent(key) : null;
+        return content != null ? content.duplicate() : null;
+    }
+
+    /**
+     * Drop an object from the cache. Must be called when the object is deleted.
+     */
+    public void invalidate(String key) {
+        objects.invalidate(key);
+    }
+
+    private ByteBuffer load(String key, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        Path path = storageBackend.localPath(key).orElse(null);
+        if (path != null) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                fill(buffer, channel);
+            }
+        } else {
+            try (InputStream in = storageBackend.read(key);
+                 ReadableByteChannel channel = Channels.newChannel(in)) {
+                fill(buffer, channel);
+            }
+        }
+        return buffer.flip().asReadOnlyBuffer();
+    }
+
+    private void fill(ByteBuffer buffer, ReadableByteChannel channel) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                // Never cache a truncated object
+                throw new EOFException("Object shorter than its recorded size");
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.entity.Blob;
+import fr.shawiizz.plumeo.entity.File;
+import fr.shawiizz.plumeo.repository.BlobRepository;
+import fr.shawiizz.plumeo.repository.FileRepository;
+import fr.shawiizz.plumeo.storage.StorageBackend;
+import fr.shawiizz.plumeo.storage.StorageLayout;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moves stored objects to the keys of the current {@link StorageLayout}: flat or absolute
+ * blob paths, and files stored per user before deduplication.
+ * <p>
+ * Runs online, one small batch per tick. Each object is copied to its new key, and the rows
+ * pointing to it are switched in a transaction that also hands the old key to the
+ * {@link StorageReclaimer}. The old object is therefore only deleted once that transaction is
+ * committed and nothing references it anymore, so readers always find the content at the key they see.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageMigrationService {
+    private final BlobRepository blobRepository;
+    private final FileRepository fileRepository;
+    private final StorageBackend storageBackend;
+    private final StorageLayout storageLayout;
+    private final StorageReclaimer storageReclaimer;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${storage.migration.enabled:false}")
+    private boolean enabled;
+
+    @Value("${storage.migration.batch-size:100}")
+    private int batchSize;
+
+    // Keyset cursors, null once the table has been fully scanned
+    private String blobCursor = "";
+    private String fileCursor = "";
+
+    private long migratedObjects;
+
+    @Scheduled(fixedDelayString = "${storage.migration.interval:PT1S}")
+    public void migrateScheduled() {
+        if (enabled && (blobCursor != null || fileCursor != null)) {
+            migrateNextBatch();
+        }
+    }
+
+    /**
+     * Migrate the next batch of objects.
+     *
+     * @return false once every object follows the current layout
+     */
+    public synchronized boolean migrateNextBatch() {
+        if (blobCursor != null) {
+            List<Blob> batch = blobRepository.findBySha256GreaterThanOrderBySha256Asc(blobCursor, Limit.of(batchSize));
+            for (Blob blob : batch) {
+                migrateBlob(blob.getSha256());
+            }
+            blobCursor = batch.size() < batchSize ? null : batch.get(batch.size() - 1).getSha256();
+            return true;
+        }
+
+        if (fileCursor != null) {
+            List<File> batch = fileRepository.findByChecksumSha256IsNullAndIdGreaterThanOrderByIdAsc(fileCursor, Limit.of(batchSize));
+            for (File file : batch) {
+                migrateLegacyFile(file);
+            }
+            fileCursor = batch.size() < batchSize ? null : batch.get(batch.size() - 1).getId();
+            if (fileCursor == null) {
+                log.info("Storage migration finished, {} objects moved", migratedObjects);
+            }
+            return fileCursor != null;
+        }
+
+        return false;
+    }
+
+    private void migrateBlob(String sha256) {
+        String targetKey = storageLayout.blobKey(sha256);
+        try {
+            // The blob row stays locked while moving, which holds off uploads and deletions of the same content
+            transactionTemplate.executeWithoutResult(status -> {
+                Optional<Blob> blobOpt = blobRepository.findForUpdate(sha256);
+                if (blobOpt.isEmpty() || blobOpt.get().getStoragePath().equals(targetKey)) {
+                    return;
+                }
+
+                Blob blob = blobOpt.get();
+                String source = blob.getStoragePath();
+                if (!copy(source, targetKey, blob.getSize())) {
+                    return;
+                }
+                blob.setStoragePath(targetKey);
+                fileRepository.updateFilePath(source, targetKey);
+                storageReclaimer.reclaim(List.of(source));
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to migrate blob {}: {}", sha256, e.getMessage());
+        }
+    }
+
+    private void migrateLegacyFile(File file) {
+        String sourceKey = file.getFilePath();
+        String targetKey = storageLayout.fileKey(file.getId());
+        if (sourceKey.equals(targetKey)) {
+            return;
+        }
+
+        try {
+            long size = file.getFileSize() != null ? file.getFileSize() : storageBackend.size(sourceKey);
+            if (!copy(sourceKey, targetKey, size)) {
+                return;
+            }
+
+            // Nothing is locked here: the update only applies if the file was neither deleted nor moved
+            // by another instance meanwhile. Whichever key is left unreferenced is reclaimed, the
+            // reclaimer checking references again so that the copy of a concurrent winner is kept.
+            transactionTemplate.executeWithoutResult(status -> {
+                int updated = fileRepository.updateFilePath(file.getId(), sourceKey, targetKey);
+                storageReclaimer.reclaim(List.of(updated == 1 ? sourceKey : targetKey));
+            });
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to migrate file {}: {}", file.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return false if the source no longer exists
+     */
+    private boolean copy(String sourceKey, String targetKey, long size) {
+        try (InputStream in = storageBackend.read(sourceKey)) {
+            storageBackend.write(targetKey, in, size);
+            migratedObjects++;
+            return true;
+        } catch (NoSuchFileException e) {
+            log.warn("Skipping missing object {}", sourceKey);
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
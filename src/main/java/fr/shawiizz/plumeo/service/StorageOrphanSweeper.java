@@ -0,0 +1,164 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.repository.StorageReclaimTaskRepository;
+import fr.shawiizz.plumeo.storage.StorageBackend;
+import fr.shawiizz.plumeo.storage.StorageLayout;
+import fr.shawiizz.plumeo.storage.StoredObject;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Reconciles the storage against the database: stored objects no blob or file points to anymore,
+ * left behind by a crash between a write and its commit or by deletions predating the
+ * {@link StorageReclaimer}, are queued for deletion.
+ * <p>
+ * Objects younger than the grace period are skipped, as an upload stores its object before committing
+ * the row referencing it. Thumbnails and gzip variants are orphans once the content they were derived
+ * from is gone.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageOrphanSweeper implements MeterBinder {
+    private final StorageBackend storageBackend;
+    private final StorageReclaimTaskRepository reclaimTaskRepository;
+    private final StorageReclaimer storageReclaimer;
+    private final ThumbnailService thumbnailService;
+    private final CompressionService compressionService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${storage.orphan-sweep.enabled:false}")
+    private boolean enabled;
+
+    @Value("${storage.orphan-sweep.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${storage.orphan-sweep.grace-period:PT24H}")
+    private Duration gracePeriod;
+
+    private final LongAdder orphanedObjects = new LongAdder();
+
+    @Scheduled(fixedDelayString = "${storage.orphan-sweep.interval:PT24H}",
+            initialDelayString = "${storage.orphan-sweep.initial-delay:PT10M}")
+    public void sweepScheduled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            sweep();
+        } catch (IOException | UncheckedIOException e) {
+            // Retried on the next pass
+            log.warn("Orphan sweep failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Walk every namespace of the storage and queue the deletion of orphaned objects.
+     *
+     * @return the number of orphans found
+     */
+    public synchronized int sweep() throws IOException {
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        int orphans = 0;
+
+        for (String namespace : List.of(StorageLayout.BLOBS, StorageLayout.FILES,
+                ThumbnailService.THUMBNAILS, CompressionService.NAMESPACE)) {
+            List<String> batch = new ArrayList<>(batchSize);
+            try (Stream<StoredObject> objects = storageBackend.list(namespace + "/")) {
+                Iterator<StoredObject> iterator = objects.iterator();
+                while (iterator.hasNext()) {
+                    StoredObject object = iterator.next();
+                    if (object.lastModified().isBefore(cutoff)) {
+                        batch.add(object.key());
+                    }
+                    if (batch.size() == batchSize) {
+                        orphans += reclaimOrphans(namespace, batch);
+                        batch.clear();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                orphans += reclaimOrphans(namespace, batch);
+            }
+        }
+
+        log.info("Orphan sweep finished, {} orphaned objects queued for deletion", orphans);
+        return orphans;
+    }
+
+    private int reclaimOrphans(String namespace, List<String> keys) {
+        Integer reclaimed = transactionTemplate.execute(status -> {
+            List<String> orphans = switch (namespace) {
+                case StorageLayout.BLOBS, StorageLayout.FILES -> {
+                    Set<String> referenced = new HashSet<>(reclaimTaskRepository.findReferencedKeys(keys));
+                    yield keys.stream()
+                            .filter(key -> !referenced.contains(key))
+                            .toList();
+                }
+                default -> derivedOrphans(namespace, keys);
+            };
+            storageReclaimer.reclaim(orphans);
+            return orphans.size();
+        });
+
+        int count = reclaimed != null ? reclaimed : 0;
+        orphanedObjects.add(count);
+        return count;
+    }
+
+    /**
+     * Thumbnails and variants whose source content is gone. Unrecognized keys are left alone.
+     */
+    private List<String> derivedOrphans(String namespace, List<String> keys) {
+        List<String> orphans = new ArrayList<>();
+        List<String> sourceIds = new ArrayList<>();
+        List<String> derivedKeys = new ArrayList<>();
+        for (String key : keys) {
+            Optional<String> sourceId = namespace.equals(ThumbnailService.THUMBNAILS)
+                    ? thumbnailService.contentIdOf(key)
+                    : compressionService.sha256Of(key);
+            sourceId.ifPresent(id -> {
+                sourceIds.add(id);
+                derivedKeys.add(key);
+            });
+        }
+        if (sourceIds.isEmpty()) {
+            return orphans;
+        }
+
+        Set<String> existing = new HashSet<>(reclaimTaskRepository.findExistingContentIds(sourceIds));
+        for (int i = 0; i < derivedKeys.size(); i++) {
+            if (!existing.contains(sourceIds.get(i))) {
+                orphans.add(derivedKeys.get(i));
+            }
+        }
+        return orphans;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("plumeo.storage.orphans", orphanedObjects, LongAdder::sum)
+                .description("Stored objects found without any reference by the orphan sweep")
+                .register(registry);
+    }
+}
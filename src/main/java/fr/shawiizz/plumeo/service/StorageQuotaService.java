@@ -0,0 +1,170 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.exception.StorageQuotaExceededException;
+import fr.shawiizz.plumeo.repository.UserStorageUsageRepository;
+import fr.shawiizz.plumeo.repository.UserStorageUsageRepository.UsageTotals;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Storage used by each user, and the quota enforced on uploads.
+ * <p>
+ * Usage is counted in the transaction that inserts or deletes files, as a delta added to one of a few
+ * stripes picked at random, so deletions, merges and the reconciliation never wait on a single row.
+ * Stripes are merged in the background, and reading the usage sums a handful of rows. A periodic
+ * reconciliation compares the counters with the files table and corrects any drift.
+ * <p>
+ * Charges leaving more than the lock margin free only add their delta, so the uploads of a user do not
+ * wait on each other. Closer to the limit, charges of the same user are serialized by a transaction-scoped
+ * advisory lock: the check and the delta commit together, so concurrent uploads cannot overshoot the quota
+ * unless a burst of lock-free charges exceeds the margin. The lock is only held by the short transaction
+ * recording the files, never while their content is received.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageQuotaService implements MeterBinder {
+    private final UserStorageUsageRepository usageRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${storage.quota.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.quota.limit:10GB}")
+    private DataSize limit;
+
+    // Stripes receiving deltas, stripe 0 holding the merged total
+    @Value("${storage.quota.stripes:8}")
+    private int stripes;
+
+    // Free space below which charges are checked under the lock
+    @Value("${storage.quota.lock-margin:1GB}")
+    private DataSize lockMargin;
+
+    @Value("${storage.quota.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    private final LongAdder correctedUsers = new LongAdder();
+
+    /**
+     * Get the storage used by a user.
+     */
+    public UsageTotals getUsage(String userId) {
+        return usageRepository.sumByUserId(userId);
+    }
+
+    /**
+     * Get the quota of every user in bytes, or null when quotas are disabled.
+     */
+    public Long getLimit() {
+        return enabled ? limit.toBytes() : null;
+    }
+
+    /**
+     * Get the bytes a user may still upload, {@link Long#MAX_VALUE} when quotas are disabled.
+     */
+    public long getRemaining(String userId) {
+        if (!enabled) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, limit.toBytes() - getUsage(userId).usedBytes());
+    }
+
+    /**
+     * Count new files of a user, within the transaction inserting them.
+     *
+     * @throws StorageQuotaExceededException if the files do not fit in the quota
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void charge(String userId, long bytes, int files) {
+        // Loin de la limite, le delta suffit : seuls les envois qui approchent la limite prennent le verrou
+        if (enabled && bytes > getRemaining(userId) - lockMargin.toBytes()) {
+            // Vérifié une dernière fois sous verrou, des envois parallèles ayant pu consommer le quota entre-temps
+            usageRepository.lockQuota(userId);
+            if (bytes > getRemaining(userId)) {
+                throw new StorageQuotaExceededException();
+            }
+        }
+        addDelta(userId, bytes, files);
+    }
+
+    /**
+     * Uncount deleted files of a user, within the transaction deleting them.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void refund(String userId, long bytes, int files) {
+        addDelta(userId, -bytes, -files);
+    }
+
+    private void addDelta(String userId, long bytes, long files) {
+        short stripe = (short) ThreadLocalRandom.current().nextInt(1, stripes + 1);
+        usageRepository.add(userId, stripe, bytes, files);
+    }
+
+    @Scheduled(fixedDelayString = "${storage.quota.merge-interval:PT10S}")
+    public void mergeScheduled() {
+        Integer merged = transactionTemplate.execute(status -> usageRepository.mergeStripes());
+        log.debug("Storage usage merged for {} users", merged);
+    }
+
+    /**
+     * Correct the usage of every user from their files, one page of users per transaction.
+     * The drift is added as a delta, so it stays correct whatever was uploaded or merged meanwhile.
+     *
+     * @return the number of users whose usage was wrong
+     */
+    @Scheduled(fixedDelayString = "${storage.quota.reconcile-interval:PT6H}",
+            initialDelayString = "${storage.quota.reconcile-initial-delay:PT15M}")
+    public synchronized int reconcile() {
+        int corrected = 0;
+        String afterId = "";
+        List<Object[]> page;
+        do {
+            String cursor = afterId;
+            page = transactionTemplate.execute(status -> {
+                List<Object[]> rows = usageRepository.findUsageDrift(cursor, reconcileBatchSize);
+                for (Object[] row : rows) {
+                    if (drifted(row)) {
+                        addDelta((String) row[0], ((Number) row[1]).longValue(), ((Number) row[2]).longValue());
+                        log.warn("Storage usage of user {} corrected by {} bytes and {} files", row[0], row[1], row[2]);
+                    }
+                }
+                return rows;
+            });
+            if (page == null || page.isEmpty()) {
+                break;
+            }
+            corrected += (int) page.stream().filter(StorageQuotaService::drifted).count();
+            afterId = (String) page.get(page.size() - 1)[0];
+        } while (page.size() == reconcileBatchSize);
+
+        correctedUsers.add(corrected);
+        log.info("Storage usage reconciled, {} users corrected", corrected);
+        return corrected;
+    }
+
+    private static boolean drifted(Object[] row) {
+        return ((Number) row[1]).longValue() != 0 || ((Number) row[2]).longValue() != 0;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("plumeo.storage.quota.corrections", correctedUsers, LongAdder::sum)
+                .description("Users whose storage usage was corrected by the reconciliation")
+                .register(registry);
+    }
+}
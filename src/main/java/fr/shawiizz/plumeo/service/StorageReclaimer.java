@@ -0,0 +1,189 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.entity.StorageReclaimTask;
+import fr.shawiizz.plumeo.repository.StorageReclaimTaskRepository;
+import fr.shawiizz.plumeo.storage.StorageBackend;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deletes stored objects in the background once the rows referencing them are gone.
+ * <p>
+ * Deletions are queued in the storage_reclaim_tasks table by the transaction that drops the last
+ * reference, so requests never wait on the storage. Each tick locks a batch of due tasks with
+ * SKIP LOCKED, so several instances can share the work, and keeps the lock while deleting: an upload
+ * bringing the content back cancels the task, or waits until the object is gone and stores it again.
+ * Failed deletions are retried with an exponential backoff, and deletions are paced to a fixed rate
+ * so that draining a large bulk deletion never competes with downloads for the storage.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageReclaimer implements MeterBinder {
+    // Keys per INSERT, far below the bind parameter limit of PostgreSQL
+    private static final int ENQUEUE_CHUNK_SIZE = 1000;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final StorageReclaimTaskRepository reclaimTaskRepository;
+    private final StorageBackend storageBackend;
+    private final HotFileCache hotFileCache;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${storage.reclaim.batch-size:100}")
+    private int batchSize;
+
+    @Value("${storage.reclaim.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${storage.reclaim.retry-delay:PT10S}")
+    private Duration retryDelay;
+
+    @Value("${storage.reclaim.max-retry-delay:PT1H}")
+    private Duration maxRetryDelay;
+
+    // Deletions per second
+    @Value("${storage.reclaim.rate:200}")
+    private int rate;
+
+    private final LongAdder reclaimedObjects = new LongAdder();
+    private final LongAdder failedAttempts = new LongAdder();
+    private final LongAdder abandonedObjects = new LongAdder();
+
+    /**
+     * Queue the deletion of objects no row references anymore, within the current transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reclaim(Collection<String> keys) {
+        List<String> chunk = new ArrayList<>(Math.min(keys.size(), ENQUEUE_CHUNK_SIZE));
+        for (String key : keys) {
+            chunk.add(key);
+            if (chunk.size() == ENQUEUE_CHUNK_SIZE) {
+                reclaimTaskRepository.enqueue(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            reclaimTaskRepository.enqueue(chunk);
+        }
+    }
+
+    /**
+     * Cancel pending deletions of objects referenced again, within the current transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void cancel(Collection<String> keys) {
+        reclaimTaskRepository.cancel(keys);
+    }
+
+    @Scheduled(fixedDelayString = "${storage.reclaim.interval:PT5S}")
+    public void reclaimScheduled() {
+        // Drained batch after batch, until a batch is not full
+        long start = System.nanoTime();
+        long total = 0;
+        int processed;
+        do {
+            processed = reclaimNextBatch();
+            total += processed;
+
+            // Paced between batches, so no task stays locked while waiting
+            long aheadNanos = (long) (total * 1e9 / rate) - (System.nanoTime() - start);
+            if (processed == batchSize && aheadNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(aheadNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } while (processed == batchSize);
+    }
+
+    /**
+     * Process the next batch of due deletions.
+     *
+     * @return the number of tasks processed
+     */
+    public int reclaimNextBatch() {
+        Integer processed = transactionTemplate.execute(status -> {
+            List<StorageReclaimTask> tasks = reclaimTaskRepository.lockDue(batchSize);
+            if (tasks.isEmpty()) {
+                return 0;
+            }
+
+            // Queued by the orphan sweep while an upload was reusing the object
+            Set<String> referenced = new HashSet<>(reclaimTaskRepository.findReferencedKeys(
+                    tasks.stream().map(StorageReclaimTask::getStorageKey).toList()));
+            for (StorageReclaimTask task : tasks) {
+                if (referenced.contains(task.getStorageKey())) {
+                    reclaimTaskRepository.delete(task);
+                    log.warn("Kept {}, referenced again", task.getStorageKey());
+                } else {
+                    process(task);
+                }
+            }
+            return tasks.size();
+        });
+        return processed != null ? processed : 0;
+    }
+
+    private void process(StorageReclaimTask task) {
+        String key = task.getStorageKey();
+        try {
+            storageBackend.delete(key);
+            hotFileCache.invalidate(key);
+            reclaimTaskRepository.delete(task);
+            reclaimedObjects.increment();
+            return;
+        } catch (IOException | RuntimeException e) {
+            failedAttempts.increment();
+            String error = String.valueOf(e.getMessage());
+            task.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        }
+
+        int attempts = task.getAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            reclaimTaskRepository.delete(task);
+            abandonedObjects.increment();
+            log.error("Giving up deleting {} after {} attempts: {}", key, attempts, task.getLastError());
+            return;
+        }
+
+        long delay = Math.min(retryDelay.toMillis() << Math.min(attempts - 1, 20), maxRetryDelay.toMillis());
+        task.setAttempts(attempts);
+        task.setNextAttemptAt(Instant.now().plusMillis(delay));
+        log.warn("Could not delete {} (attempt {}), retrying in {} ms: {}", key, attempts, delay, task.getLastError());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("plumeo.storage.reclaim.deleted", reclaimedObjects, LongAdder::sum)
+                .description("Stored objects deleted by the reclaimer")
+                .register(registry);
+        FunctionCounter.builder("plumeo.storage.reclaim.failures", failedAttempts, LongAdder::sum)
+                .description("Failed deletion attempts, retried later")
+                .register(registry);
+        FunctionCounter.builder("plumeo.storage.reclaim.abandoned", abandonedObjects, LongAdder::sum)
+                .description("Stored objects left behind after every deletion attempt failed")
+                .register(registry);
+    }
+}
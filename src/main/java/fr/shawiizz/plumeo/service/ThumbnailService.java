@@ -0,0 +1,364 @@
+package fr.shawiizz.plumeo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fr.shawiizz.plumeo.entity.File;
+import fr.shawiizz.plumeo.storage.StorageBackend;
+import fr.shawiizz.plumeo.storage.StorageLayout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downscaled JPEG previews of image uploads, stored next to the originals.
+ * <p>
+ * Thumbnails are generated right after upload by a small worker pool. Its queue is bounded and
+ * uploads arriving while it is full are not queued: their thumbnails are queued again on first request
+ * instead, so a burst of uploads never piles up work or memory. Requests never decode images themselves,
+ * a missing thumbnail is reported as pending until the pool has written it. Thumbnails are keyed by the
+ * content SHA-256, so identical images share them, and are never modified once written.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ThumbnailService {
+    public static final String CONTENT_TYPE = "image/jpeg";
+    public static final String THUMBNAILS = "thumbnails";
+
+    private final StorageBackend storageBackend;
+    private final StorageLayout storageLayout;
+    private final MeterRegistry meterRegistry;
+    private final HotFileCache hotFileCache;
+
+    // Maximum width and height of each thumbnail, ascending
+    @Value("${file.thumbnail.sizes:128,256,512}")
+    private List<Integer> sizes;
+
+    @Value("${file.thumbnail.workers:2}")
+    private int workers;
+
+    @Value("${file.thumbnail.queue-capacity:100}")
+    private int queueCapacity;
+
+    // Larger images are not decoded at all, their thumbnails are refused
+    @Value("${file.thumbnail.max-source-pixels:50000000}")
+    private long maxSourcePixels;
+
+    @Value("${file.thumbnail.quality:0.8}")
+    private float quality;
+
+    // Images that could not be decoded are not retried before this delay
+    @Value("${file.thumbnail.failure-ttl:PT1H}")
+    private Duration failureTtl;
+
+    private ThreadPoolExecutor executor;
+
+    // Generations queued or running, so concurrent requests for the same image queue it once
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    // Why the generation of some content failed, reported to requests instead of queuing it again
+    private Cache<String, String> failures;
+
+    private Counter droppedCounter;
+    private Timer generationTimer;
+
+    @PostConstruct
+    void init() {
+        sizes = sizes.stream().sorted().distinct().toList();
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("thumbnail-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        failures = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(failureTtl)
+                .build();
+
+        droppedCounter = Counter.builder("plumeo.thumbnail.dropped")
+                .description("Uploads whose thumbnails were left to the first request because the queue was full")
+                .register(meterRegistry);
+        generationTimer = Timer.builder("plumeo.thumbnail.generation")
+                .description("Time to decode an image and write all its thumbnails")
+                .register(meterRegistry);
+        Gauge.builder("plumeo.thumbnail.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Images waiting for thumbnail generation")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Whether thumbnails can be generated for the given MIME type.
+     */
+    public boolean supports(String mimeType) {
+        return mimeType != null && mimeType.startsWith("image/")
+                && ImageIO.getImageReadersByMIMEType(mimeType).hasNext();
+    }
+
+    /**
+     * Queue the generation of every thumbnail of a freshly uploaded file, if the queue has room.
+     */
+    public void generateAsync(File file) {
+        if (supports(file.getMimeType()) && !schedule(file)) {
+            droppedCounter.increment();
+            log.debug("Thumbnail queue full, file {} will get its thumbnails on first request", file.getId());
+        }
+    }
+
+    /**
+     * Get the size of the smallest thumbnail covering the requested size, or the largest one.
+     */
+    public int resolveSize(int requestedSize) {
+        return sizes.stream()
+                .filter(size -> size >= requestedSize)
+                .findFirst()
+                .orElse(sizes.get(sizes.size() - 1));
+    }
+
+    /**
+     * Get the storage key of a thumbnail. When it does not exist yet, the generation of the thumbnails
+     * of the file is queued and nothing is returned: the caller asks again later.
+     *
+     * @param size one of the configured sizes, see {@link #resolveSize}
+     * @return the thumbnail key, empty while the thumbnail is being generated
+     * @throws RuntimeException if the file is not an image, or could not be decoded
+     */
+    public Optional<String> getThumbnail(File file, int size) throws IOException {
+        if (!supports(file.getMimeType())) {
+            throw new RuntimeException("Thumbnails are only available for images");
+        }
+
+        String key = thumbnailKey(file, size);
+        if (storageBackend.exists(key)) {
+            return Optional.of(key);
+        }
+
+        String failure = failures.getIfPresent(contentId(file));
+        if (failure != null) {
+            throw new RuntimeException("Failed to generate thumbnail: " + failure);
+        }
+        if (!schedule(file)) {
+            log.debug("Thumbnail queue full, generation of file {} left to a later request", file.getId());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Delete the thumbnails generated from some content, once no file references it anymore.
+     *
+     * @param contentId the content SHA-256, or the file ID for files stored before deduplication
+     */
+    public void deleteThumbnails(String contentId) {
+        for (int size : sizes) {
+            String key = key(contentId, size);
+            try {
+                storageBackend.delete(key);
+                hotFileCache.invalidate(key);
+            } catch (IOException e) {
+                log.warn("Could not delete thumbnail {} of {}: {}", size, contentId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get the storage keys of every thumbnail size of some content, generated or not.
+     *
+     * @param contentId the content SHA-256, or the file ID for files stored before deduplication
+     */
+    public List<String> thumbnailKeys(String contentId) {
+        return sizes.stream()
+                .map(size -> key(contentId, size))
+                .toList();
+    }
+
+    public String thumbnailKey(File file, int size) {
+        return key(contentId(file), size);
+    }
+
+    /**
+     * Queue the generation of every thumbnail of a file, unless it is already queued.
+     *
+     * @return false if the queue is full
+     */
+    private boolean schedule(File file) {
+        String contentId = contentId(file);
+        if (!inFlight.add(contentId)) {
+            return true;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    generationTimer.recordCallable(() -> {
+                        writeThumbnails(file, contentId);
+                        return null;
+                    });
+                } catch (Exception e) {
+                    failures.put(contentId, String.valueOf(e.getMessage()));
+                    log.warn("Could not generate thumbnails of file {}: {}", file.getId(), e.getMessage());
+                } finally {
+                    inFlight.remove(contentId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(contentId);
+            return false;
+        }
+    }
+
+    private void writeThumbnails(File file, String contentId) throws IOException {
+        BufferedImage image = decode(file);
+
+        // Du plus grand au plus petit, chaque miniature est réduite depuis la précédente
+        BufferedImage source = image;
+        for (int i = sizes.size() - 1; i >= 0; i--) {
+            int size = sizes.get(i);
+            String key = key(contentId, size);
+            source = scale(source, size);
+            if (!storageBackend.exists(key)) {
+                byte[] jpeg = encodeJpeg(source);
+                storageBackend.write(key, new ByteArrayInputStream(jpeg), jpeg.length);
+            }
+        }
+        log.debug("Thumbnails generated for file {}", file.getId());
+    }
+
+    /**
+     * Decode the original, subsampled while decoding when it is much larger than the largest thumbnail.
+     */
+    private BufferedImage decode(File file) throws IOException {
+        try (InputStream in = storageBackend.read(file.getFilePath());
+             ImageInputStream imageInput = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                long width = reader.getWidth(0);
+                long height = reader.getHeight(0);
+                if (width * height > maxSourcePixels) {
+                    throw new IOException("Image too large for thumbnails: " + width + "x" + height);
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = (int) Math.max(1, Math.max(width, height) / (2L * sizes.get(sizes.size() - 1)));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Downscale to fit in a square of the given size, halving first so bilinear filtering stays sharp.
+     * The result is opaque RGB, transparent areas are flattened on white.
+     */
+    private BufferedImage scale(BufferedImage image, int size) {
+        double ratio = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            if (current.getType() == BufferedImage.TYPE_INT_RGB && width == current.getWidth() && height == current.getHeight()) {
+                break;
+            }
+
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, width, height, Color.WHITE, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(imageOutput);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Get the content a thumbnail was generated from, the reverse of {@link #thumbnailKeys}.
+     *
+     * @return the content SHA-256 or file ID, empty if the key is not a thumbnail key
+     */
+    public Optional<String> contentIdOf(String key) {
+        String name = key.substring(key.lastIndexOf('/') + 1);
+        int sizeStart = name.lastIndexOf('-');
+        if (!name.endsWith(".jpg") || sizeStart <= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(name.substring(0, sizeStart));
+    }
+
+    private String contentId(File file) {
+        return file.getChecksumSha256() != null ? file.getChecksumSha256() : file.getId();
+    }
+
+    private String key(String contentId, int size) {
+        return storageLayout.key(THUMBNAILS, contentId + "-" + size + ".jpg");
+    }
+}
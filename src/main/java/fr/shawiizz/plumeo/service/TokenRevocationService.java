@@ -0,0 +1,69 @@
+package fr.shawiizz.plumeo.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import fr.shawiizz.plumeo.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Tracks the current token version of each user so revoked JWTs can be rejected
+ * without querying the database on every request.
+ * A token is revoked when its version claim is lower than the user's token version.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TokenRevocationService {
+    private final UserRepository userRepository;
+    private final UserCache userCache;
+
+    @Value("${jwt.revocation.cache-ttl:60s}")
+    private Duration cacheTtl;
+
+    @Value("${jwt.revocation.cache-max-size:10000}")
+    private long cacheMaxSize;
+
+    // Empty for users that do not exist, so tokens of deleted users do not query the database each time
+    private LoadingCache<String, Optional<Integer>> tokenVersions;
+
+    @PostConstruct
+    void init() {
+        tokenVersions = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .build(userRepository::findTokenVersionById);
+    }
+
+    /**
+     * Check whether a token issued with the given version has been revoked.
+     * Tokens of users that no longer exist are considered revoked.
+     *
+     * @param userId       the token subject
+     * @param tokenVersion the version claim of the token
+     * @return true if the token must be rejected
+     */
+    public boolean isRevoked(String userId, int tokenVersion) {
+        Optional<Integer> currentVersion = tokenVersions.get(userId);
+        return currentVersion.isEmpty() || tokenVersion < currentVersion.get();
+    }
+
+    /**
+     * Revoke every token issued so far for a user.
+     * Other nodes pick up the new version once their cached entry expires.
+     *
+     * @param userId the user whose tokens are revoked
+     */
+    public void revokeTokens(String userId) {
+        userRepository.incrementTokenVersion(userId);
+        tokenVersions.invalidate(userId);
+        userCache.invalidate(userId);
+        log.info("Revoked all tokens for user {}", userId);
+    }
+}
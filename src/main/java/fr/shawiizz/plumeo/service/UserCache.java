@@ -0,0 +1,106 @@
+package fr.shawiizz.plumeo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fr.shawiizz.plumeo.dto.UserSnapshot;
+import fr.shawiizz.plumeo.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Two-tier cache of users.
+ * The first tier memoizes the user for the duration of the current request,
+ * the second is a bounded near cache shared between requests with a short TTL.
+ * Both hold immutable {@link UserSnapshot}s, never entities: changes must be made
+ * on the entity loaded from the {@link UserRepository}, then {@link #invalidate} called.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserCache implements MeterBinder {
+    private static final String REQUEST_ATTRIBUTE = UserCache.class.getName() + ".user";
+
+    private final UserRepository userRepository;
+
+    @Value("${user.cache.ttl:30s}")
+    private Duration ttl;
+
+    @Value("${user.cache.max-size:10000}")
+    private long maxSize;
+
+    private Cache<String, UserSnapshot> users;
+
+    private final LongAdder requestHits = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get a user by ID, from the request memo, the near cache or the database.
+     *
+     * @param userId the user ID
+     * @return Optional containing the user if it exists
+     */
+    public Optional<UserSnapshot> get(String userId) {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null
+                && requestAttributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof UserSnapshot user
+                && user.id().equals(userId)) {
+            requestHits.increment();
+            return Optional.of(user);
+        }
+
+        UserSnapshot user = users.get(userId, this::load);
+        if (user != null && requestAttributes != null) {
+            requestAttributes.setAttribute(REQUEST_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return Optional.ofNullable(user);
+    }
+
+    /**
+     * Drop a user from both tiers. Must be called whenever the user row changes.
+     *
+     * @param userId the user ID
+     */
+    public void invalidate(String userId) {
+        users.invalidate(userId);
+
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null
+                && requestAttributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof UserSnapshot user
+                && user.id().equals(userId)) {
+            requestAttributes.removeAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private UserSnapshot load(String userId) {
+        return userRepository.findById(userId)
+                .map(UserSnapshot::of)
+                .orElse(null);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, users, "user");
+        FunctionCounter.builder("plumeo.user.cache.request.hits", requestHits, LongAdder::sum)
+                .description("User lookups served by the request-scoped memo")
+                .register(registry);
+    }
+}
@@ -4,6 +4,9 @@ import fr.shawiizz.plumeo.dto.request.LoginRequest;
 import fr.shawiizz.plumeo.entity.User;
 import fr.shawiizz.plumeo.repository.UserRepository;
 import fr.shawiizz.plumeo.util.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -21,6 +24,25 @@ public class UserService {
     private final BCryptPasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
+    private final UserCache userCache;
+    private final MeterRegistry meterRegistry;
+
+    private Timer loginSuccessTimer;
+    private Timer loginFailureTimer;
+
+    @PostConstruct
+    void init() {
+        loginSuccessTimer = loginTimer("success");
+        loginFailureTimer = loginTimer("failure");
+    }
+
+    private Timer loginTimer(String outcome) {
+        return Timer.builder("plumeo.auth.login")
+                .description("Login time, including the password check")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 
     public void registerUser(String username, String email, String password) {
         if (userRepository.existsByEmail(email)) {
@@ -33,16 +55,25 @@ public class UserService {
         user.setCreatedAt(Instant.now());
 
         userRepository.save(user);
+        userCache.invalidate(user.getId());
     }
 
     public String loginUser(LoginRequest request) {
-        User user = findByEmail(request.email());
-        
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(user.getId(), request.password())
-        );
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Timer timer = loginFailureTimer;
+        try {
+            User user = findByEmail(request.email());
+
+            authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(user.getId(), request.password())
+            );
 
-        return jwtUtil.generateTokenWithUserId(user.getId());
+            String token = jwtUtil.generateTokenWithUserId(user.getId(), user.getTokenVersion());
+            timer = loginSuccessTimer;
+            return token;
+        } finally {
+            sample.stop(timer);
+        }
     }
 
     public User findByEmail(String email) {
@@ -0,0 +1,432 @@
+package fr.shawiizz.plumeo.storage;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Stores objects in an S3-compatible bucket (AWS S3, MinIO, ...), using path-style URLs
+ * and Signature Version 4. Payloads are streamed and sent unsigned, so no object is ever
+ * buffered or hashed in memory.
+ * <p>
+ * A single PUT is limited to 5GB: objects larger than one part are sent as a multipart upload,
+ * one part after the other, and the upload is aborted if any part fails.
+ */
+public class S3StorageBackend implements StorageBackend {
+
+    private static final DateTimeFormatter AMZ_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DATE_STAMP_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final String SIGNED_HEADERS = "host;x-amz-content-sha256;x-amz-date";
+    private static final int MAX_PARTS = 10_000;
+
+    private final HttpClient httpClient;
+    private final String endpointBase;
+    private final String basePath;
+    private final String host;
+    private final String region;
+    private final String bucket;
+    private final String accessKey;
+    private final String secretKey;
+    private final long partSize;
+
+    /**
+     * @param partSize size of the parts of multipart uploads, S3 requires at least 5MB
+     */
+    public S3StorageBackend(URI endpoint, String region, String bucket, String accessKey, String secretKey,
+                            long partSize) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        this.endpointBase = endpoint.getScheme() + "://" + endpoint.getRawAuthority();
+        this.basePath = endpoint.getRawPath() == null ? "" : endpoint.getRawPath().replaceAll("/+$", "");
+        this.host = endpoint.getPort() == -1 ? endpoint.getHost() : endpoint.getHost() + ":" + endpoint.getPort();
+        this.region = region;
+        this.bucket = bucket;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.partSize = partSize;
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        long length = Files.size(source);
+        if (length > partSize) {
+            try (InputStream content = Files.newInputStream(source)) {
+                writeMultipart(key, content, length);
+            }
+        } else {
+            HttpResponse<String> response = send("PUT", key, HttpRequest.BodyPublishers.ofFile(source),
+                    Map.of(), HttpResponse.BodyHandlers.ofString());
+            checkSuccess(response, key);
+        }
+        Files.deleteIfExists(source);
+    }
+
+    @Override
+    public void write(String key, InputStream content, long length) throws IOException {
+        if (length > partSize) {
+            writeMultipart(key, content, length);
+            return;
+        }
+        HttpResponse<String> response = send("PUT", key, streamBody(content, length), Map.of(),
+                HttpResponse.BodyHandlers.ofString());
+        checkSuccess(response, key);
+    }
+
+    /**
+     * Send the content as consecutive parts of a multipart upload, read from the stream in order.
+     */
+    private void writeMultipart(String key, InputStream content, long length) throws IOException {
+        long size = Math.max(partSize, (length + MAX_PARTS - 1) / MAX_PARTS);
+        String uploadQuery = "uploadId=" + encodeSegment(createMultipartUpload(key));
+        try {
+            StringBuilder parts = new StringBuilder("<CompleteMultipartUpload>");
+            int partNumber = 1;
+            for (long offset = 0; offset < length; offset += size, partNumber++) {
+                long partLength = Math.min(size, length - offset);
+                // Les parties lisent le même flux, qui ne doit pas être fermé entre deux parties
+                InputStream part = new BoundedInputStream(content, partLength) {
+                    @Override
+                    public void close() {
+                    }
+                };
+                HttpResponse<String> response = send("PUT", key, "partNumber=" + partNumber + "&" + uploadQuery,
+                        streamBody(part, partLength), Map.of(), HttpResponse.BodyHandlers.ofString());
+                checkSuccess(response, key);
+                String etag = response.headers().firstValue("ETag")
+                        .orElseThrow(() -> new IOException("Missing ETag for part of " + key));
+                parts.append("<Part><PartNumber>").append(partNumber).append("</PartNumber><ETag>")
+                        .append(etag.replace("\"", "&quot;")).append("</ETag></Part>");
+            }
+            parts.append("</CompleteMultipartUpload>");
+
+            HttpResponse<String> response = send("POST", key, uploadQuery,
+                    HttpRequest.BodyPublishers.ofString(parts.toString()), Map.of(),
+                    HttpResponse.BodyHandlers.ofString());
+            checkSuccess(response, key);
+            // The completion may fail after the status line has been sent
+            if (response.body().contains("<Error>")) {
+                throw new IOException("Object storage failed to complete the upload of " + key + ": " + response.body());
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                send("DELETE", key, uploadQuery, HttpRequest.BodyPublishers.noBody(), Map.of(),
+                        HttpResponse.BodyHandlers.discarding());
+            } catch (IOException abortFailure) {
+                e.addSuppressed(abortFailure);
+            }
+            throw e;
+        }
+    }
+
+    private String createMultipartUpload(String key) throws IOException {
+        HttpResponse<InputStream> response = send("POST", key, "uploads=", HttpRequest.BodyPublishers.noBody(),
+                Map.of(), HttpResponse.BodyHandlers.ofInputStream());
+        String uploadId = childText(parse(response, key).getDocumentElement(), "UploadId");
+        if (uploadId == null) {
+            throw new IOException("Missing upload ID for " + key);
+        }
+        return uploadId;
+    }
+
+    private static HttpRequest.BodyPublisher streamBody(InputStream content, long length) {
+        return HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofInputStream(() -> content), length);
+    }
+
+    @Override
+    public InputStream read(String key) throws IOException {
+        HttpResponse<InputStream> response = send("GET", key, HttpRequest.BodyPublishers.noBody(),
+                Map.of(), HttpResponse.BodyHandlers.ofInputStream());
+        return openBody(response, key);
+    }
+
+    @Override
+    public InputStream read(String key, long offset, long length) throws IOException {
+        if (length == 0) {
+            return InputStream.nullInputStream();
+        }
+        HttpResponse<InputStream> response = send("GET", key, HttpRequest.BodyPublishers.noBody(),
+                Map.of("Range", "bytes=" + offset + "-" + (offset + length - 1)),
+                HttpResponse.BodyHandlers.ofInputStream());
+        InputStream body = openBody(response, key);
+
+        if (response.statusCode() == 206) {
+            return body;
+        }
+        // The server ignored the range and sent the whole object
+        body.skipNBytes(offset);
+        return new BoundedInputStream(body, length);
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        HttpResponse<Void> response = head(key);
+        if (response.statusCode() == 404) {
+            return false;
+        }
+        checkSuccess(response, key);
+        return true;
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        HttpResponse<Void> response = head(key);
+        if (response.statusCode() == 404) {
+            throw new NoSuchFileException(key);
+        }
+        checkSuccess(response, key);
+        return response.headers().firstValueAsLong("Content-Length")
+                .orElseThrow(() -> new IOException("Missing Content-Length for " + key));
+    }
+
+    /**
+     * S3 does not report whether the object existed: a successful delete always returns true.
+     */
+    @Override
+    public boolean delete(String key) throws IOException {
+        HttpResponse<String> response = send("DELETE", key, HttpRequest.BodyPublishers.noBody(),
+                Map.of(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 404) {
+            return false;
+        }
+        checkSuccess(response, key);
+        return true;
+    }
+
+    /**
+     * Pages of up to 1000 keys are fetched with ListObjectsV2 as the stream is consumed.
+     */
+    @Override
+    public Stream<StoredObject> list(String prefix) throws IOException {
+        return Stream.iterate(listPage(prefix, null), Objects::nonNull, page -> {
+                    if (page.continuationToken() == null) {
+                        return null;
+                    }
+                    try {
+                        return listPage(prefix, page.continuationToken());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .flatMap(page -> page.objects().stream());
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    private ListPage listPage(String prefix, String continuationToken) throws IOException {
+        // Canonical query string: parameters sorted by name
+        String query = (continuationToken != null ? "continuation-token=" + encodeSegment(continuationToken) + "&" : "")
+                + "list-type=2&prefix=" + encodeSegment(prefix);
+        HttpResponse<InputStream> response = send("GET", "", query, HttpRequest.BodyPublishers.noBody(),
+                Map.of(), HttpResponse.BodyHandlers.ofInputStream());
+        Document document = parse(response, prefix);
+
+        NodeList contents = document.getElementsByTagName("Contents");
+        List<StoredObject> objects = new ArrayList<>(contents.getLength());
+        for (int i = 0; i < contents.getLength(); i++) {
+            Element object = (Element) contents.item(i);
+            objects.add(new StoredObject(
+                    childText(object, "Key"),
+                    Long.parseLong(childText(object, "Size")),
+                    Instant.parse(childText(object, "LastModified"))));
+        }
+
+        boolean truncated = "true".equals(childText(document.getDocumentElement(), "IsTruncated"));
+        return new ListPage(objects, truncated ? childText(document.getDocumentElement(), "NextContinuationToken") : null);
+    }
+
+    private Document parse(HttpResponse<InputStream> response, String key) throws IOException {
+        try (InputStream body = openBody(response, key)) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(body);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Invalid response from object storage for " + key, e);
+        }
+    }
+
+    private static String childText(Element parent, String name) {
+        NodeList children = parent.getElementsByTagName(name);
+        return children.getLength() > 0 ? children.item(0).getTextContent() : null;
+    }
+
+    private HttpResponse<Void> head(String key) throws IOException {
+        return send("HEAD", key, HttpRequest.BodyPublishers.noBody(), Map.of(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private <T> HttpResponse<T> send(String method, String key, HttpRequest.BodyPublisher body,
+                                     Map<String, String> headers, HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+        return send(method, key, "", body, headers, bodyHandler);
+    }
+
+    /**
+     * @param query the canonical query string, encoded and sorted by parameter name
+     */
+    private <T> HttpResponse<T> send(String method, String key, String query, HttpRequest.BodyPublisher body,
+                                     Map<String, String> headers, HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+        String canonicalUri = basePath + "/" + encodeSegment(bucket) + "/" + encodePath(key);
+        Instant now = Instant.now();
+        String amzDate = AMZ_DATE_FORMAT.format(now);
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(endpointBase + canonicalUri
+                        + (query.isEmpty() ? "" : "?" + query)))
+                .method(method, body)
+                .header("x-amz-date", amzDate)
+                .header("x-amz-content-sha256", UNSIGNED_PAYLOAD)
+                .header("Authorization", authorization(method, canonicalUri, query, now));
+        headers.forEach(builder::header);
+
+        try {
+            return httpClient.send(builder.build(), bodyHandler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while calling object storage for " + key);
+        }
+    }
+
+    /**
+     * Build the Signature Version 4 Authorization header.
+     */
+    private String authorization(String method, String canonicalUri, String canonicalQuery, Instant now) {
+        String amzDate = AMZ_DATE_FORMAT.format(now);
+        String dateStamp = DATE_STAMP_FORMAT.format(now);
+        String scope = dateStamp + "/" + region + "/s3/aws4_request";
+
+        String canonicalRequest = method + "\n"
+                + canonicalUri + "\n"
+                + canonicalQuery + "\n"
+                + "host:" + host + "\n"
+                + "x-amz-content-sha256:" + UNSIGNED_PAYLOAD + "\n"
+                + "x-amz-date:" + amzDate + "\n"
+                + "\n"
+                + SIGNED_HEADERS + "\n"
+                + UNSIGNED_PAYLOAD;
+
+        String stringToSign = "AWS4-HMAC-SHA256\n"
+                + amzDate + "\n"
+                + scope + "\n"
+                + HexFormat.of().formatHex(sha256(canonicalRequest));
+
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), dateStamp);
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, "s3");
+        signingKey = hmac(signingKey, "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+
+        return "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope
+                + ", SignedHeaders=" + SIGNED_HEADERS
+                + ", Signature=" + signature;
+    }
+
+    private InputStream openBody(HttpResponse<InputStream> response, String key) throws IOException {
+        if (response.statusCode() / 100 == 2) {
+            return response.body();
+        }
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == 404) {
+                throw new NoSuchFileException(key);
+            }
+            throw new IOException("Object storage returned " + response.statusCode() + " for " + key + ": "
+                    + new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private void checkSuccess(HttpResponse<?> response, String key) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Object storage returned " + response.statusCode() + " for " + key
+                    + (response.body() instanceof String message ? ": " + message : ""));
+        }
+    }
+
+    private static String encodePath(String key) {
+        String[] segments = key.split("/", -1);
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0) {
+                path.append('/');
+            }
+            path.append(encodeSegment(segments[i]));
+        }
+        return path.toString();
+    }
+
+    /**
+     * Percent-encode everything but RFC 3986 unreserved characters, as required by SigV4.
+     */
+    private static String encodeSegment(String segment) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : segment.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~') {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(HexFormat.of().withUpperCase().toHexDigits(b));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    /**
+     * @param continuationToken the token of the next page, null on the last page
+     */
+    private record ListPage(List<StoredObject> objects, String continuationToken) {
+    }
+}
@@ -0,0 +1,94 @@
+package fr.shawiizz.plumeo.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Spreads objects over several local roots, typically one per disk.
+ * The root is picked from a hash of the key's second segment, the first fan-out
+ * directory of the {@link StorageLayout}, so objects sharing it live on the same disk.
+ * <p>
+ * The order of the roots is part of the layout: adding or reordering roots moves keys
+ * to other disks and requires migrating the existing objects.
+ */
+public class ShardedStorageBackend implements StorageBackend {
+
+    private final List<LocalStorageBackend> shards;
+
+    public ShardedStorageBackend(List<Path> roots) {
+        if (roots.isEmpty()) {
+            throw new IllegalArgumentException("At least one storage root is required");
+        }
+        this.shards = roots.stream()
+                .map(LocalStorageBackend::new)
+                .toList();
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        shardFor(key).put(key, source);
+    }
+
+    @Override
+    public void write(String key, InputStream content, long length) throws IOException {
+        shardFor(key).write(key, content, length);
+    }
+
+    @Override
+    public InputStream read(String key) throws IOException {
+        return shardFor(key).read(key);
+    }
+
+    @Override
+    public InputStream read(String key, long offset, long length) throws IOException {
+        return shardFor(key).read(key, offset, length);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return shardFor(key).exists(key);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return shardFor(key).size(key);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return shardFor(key).delete(key);
+    }
+
+    @Override
+    public Stream<StoredObject> list(String prefix) throws IOException {
+        Stream<StoredObject> objects = Stream.empty();
+        try {
+            for (LocalStorageBackend shard : shards) {
+                objects = Stream.concat(objects, shard.list(prefix));
+            }
+        } catch (IOException e) {
+            objects.close();
+            throw e;
+        }
+        return objects;
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return shardFor(key).localPath(key);
+    }
+
+    LocalStorageBackend shardFor(String key) {
+        // String.hashCode is specified, so the mapping is stable across restarts and nodes
+        return shards.get(Math.floorMod(shardToken(key).hashCode(), shards.size()));
+    }
+
+    private static String shardToken(String key) {
+        String[] segments = key.split("/");
+        return segments.length > 1 ? segments[1] : key;
+    }
+}
@@ -0,0 +1,71 @@
+package fr.shawiizz.plumeo.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Physical storage of file contents, addressed by storage keys.
+ * <p>
+ * A key is a relative, slash-separated path built by {@link StorageLayout}, such as
+ * {@code blobs/3f/a2/<sha256>}. Its second segment is what sharded implementations
+ * distribute on.
+ */
+public interface StorageBackend {
+
+    /**
+     * Store a fully written local file under the given key. The source file is consumed:
+     * it is moved when possible, and deleted once copied otherwise.
+     */
+    void put(String key, Path source) throws IOException;
+
+    /**
+     * Store the given stream under the key, replacing any existing object.
+     *
+     * @param length the exact number of bytes to read from the stream
+     */
+    void write(String key, InputStream content, long length) throws IOException;
+
+    /**
+     * Open the whole object for reading.
+     */
+    InputStream read(String key) throws IOException;
+
+    /**
+     * Open a byte range of the object for reading.
+     *
+     * @param offset position of the first byte
+     * @param length number of bytes to read
+     */
+    InputStream read(String key, long offset, long length) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    /**
+     * Get the object size in bytes.
+     */
+    long size(String key) throws IOException;
+
+    /**
+     * Delete the object if it exists.
+     *
+     * @return true if an object was deleted
+     */
+    boolean delete(String key) throws IOException;
+
+    /**
+     * List the objects whose key starts with the given prefix, in no particular order.
+     * The stream must be closed, and may throw {@link java.io.UncheckedIOException} while consumed.
+     *
+     * @param prefix a namespace followed by a slash, such as {@code blobs/}
+     */
+    Stream<StoredObject> list(String prefix) throws IOException;
+
+    /**
+     * Get the local path of the object when it lives on a local file system,
+     * so it can be served without copying (sendfile, {@code FileChannel.transferTo}).
+     */
+    Optional<Path> localPath(String key);
+}
@@ -0,0 +1,55 @@
+package fr.shawiizz.plumeo.storage;
+
+/**
+ * Builds storage keys that fan out over nested directories named after the leading
+ * characters of the object id, e.g. {@code blobs/3f/a2/3fa2...} with two levels of two
+ * characters, so no directory ever holds more than a few hundred entries.
+ * <p>
+ * The first fan-out segment doubles as the shard token of {@link ShardedStorageBackend}.
+ */
+public class StorageLayout {
+
+    public static final String BLOBS = "blobs";
+    public static final String FILES = "files";
+
+    private final int levels;
+    private final int charsPerLevel;
+
+    public StorageLayout(int levels, int charsPerLevel) {
+        if (levels < 0 || charsPerLevel < 1) {
+            throw new IllegalArgumentException("Invalid storage layout: " + levels + " levels of " + charsPerLevel);
+        }
+        this.levels = levels;
+        this.charsPerLevel = charsPerLevel;
+    }
+
+    /**
+     * Get the key of a deduplicated blob.
+     */
+    public String blobKey(String sha256) {
+        return key(BLOBS, sha256);
+    }
+
+    /**
+     * Get the key of a file stored outside the blob store, before deduplication was introduced.
+     */
+    public String fileKey(String fileId) {
+        return key(FILES, fileId);
+    }
+
+    /**
+     * Get the key of an object in the given namespace. Dashes are skipped when building
+     * the fan-out so UUIDs spread like hex digests, and ids too short for the fan-out are
+     * stored at the top of the namespace.
+     */
+    public String key(String namespace, String id) {
+        StringBuilder key = new StringBuilder(namespace).append('/');
+        String compactId = id.replace("-", "");
+        if (compactId.length() >= levels * charsPerLevel) {
+            for (int level = 0; level < levels; level++) {
+                key.append(compactId, level * charsPerLevel, (level + 1) * charsPerLevel).append('/');
+            }
+        }
+        return key.append(id).toString();
+    }
+}
@@ -0,0 +1,13 @@
+package fr.shawiizz.plumeo.storage;
+
+import java.time.Instant;
+
+/**
+ * An object found by {@link StorageBackend#list}.
+ *
+ * @param key          the storage key of the object
+ * @param size         the object size in bytes
+ * @param lastModified when the object was last written
+ */
+public record StoredObject(String key, long size, Instant lastModified) {
+}
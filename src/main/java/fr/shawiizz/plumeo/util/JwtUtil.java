@@ -1,28 +1,88 @@
 package fr.shawiizz.plumeo.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Component
+@RequiredArgsConstructor
 public class JwtUtil {
 
+    public static final String TOKEN_VERSION_CLAIM = "ver";
+
+    private final MeterRegistry meterRegistry;
+
     @Value("${jwt.secret}")
     private String secret;
 
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    private Timer cachedVerificationTimer;
+    private Timer fullVerificationTimer;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    /**
+     * Verified claims keyed by the SHA-256 digest of the raw token.
+     * Each entry expires together with the token it was parsed from.
+     */
+    private Cache<String, Claims> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified-tokens");
+        cachedVerificationTimer = verificationTimer("hit");
+        fullVerificationTimer = verificationTimer("miss");
+    }
+
+    private Timer verificationTimer(String cacheResult) {
+        return Timer.builder("plumeo.jwt.verify")
+                .description("JWT verification time, from the cache or with a full signature check")
+                .tag("cache", cacheResult)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+        return signingKey;
     }
 
     public String extractUserId(String token) {
@@ -33,15 +93,50 @@ public class JwtUtil {
         return extractClaim(token, Claims::getExpiration);
     }
 
+    public int extractTokenVersion(String token) {
+        Integer version = extractClaim(token, claims -> claims.get(TOKEN_VERSION_CLAIM, Integer.class));
+        return version != null ? version : 0;
+    }
+
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = verifyToken(token);
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Verify the token signature and expiration once and return its claims.
+     * Successful verifications are cached until the token expires, so repeated
+     * calls for the same token do not redo the HMAC check.
+     *
+     * @param token the raw JWT
+     * @return the verified claims
+     * @throws io.jsonwebtoken.JwtException if the token is invalid or expired
+     */
+    public Claims verifyToken(String token) {
+        long start = System.nanoTime();
+        String key = digest(token);
+        Claims claims = verifiedTokens.getIfPresent(key);
+        if (claims != null) {
+            cachedVerificationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return claims;
+        }
+
+        // Invalid tokens throw here and are never cached
+        claims = extractAllClaims(token);
+        verifiedTokens.put(key, claims);
+        fullVerificationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return claims;
+    }
+
+    /**
+     * Get hit/miss statistics of the verified token cache.
+     */
+    public CacheStats getTokenCacheStats() {
+        return verifiedTokens.stats();
+    }
+
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
+        return parser
                 .parseSignedClaims(token)
                 .getPayload();
     }
@@ -51,7 +146,12 @@ public class JwtUtil {
     }
 
     public String generateTokenWithUserId(String userId) {
+        return generateTokenWithUserId(userId, 0);
+    }
+
+    public String generateTokenWithUserId(String userId, int tokenVersion) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put(TOKEN_VERSION_CLAIM, tokenVersion);
         return createToken(claims, userId);
     }
 
@@ -69,4 +169,39 @@ public class JwtUtil {
         final String tokenUserId = extractUserId(token);
         return (tokenUserId != null && tokenUserId.equals(userId) && !isTokenExpired(token));
     }
-}
\ No newline at end of file
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Expires cache entries at the token's own {@code exp} claim.
+     */
+    private class TokenExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            Date exp = claims.getExpiration();
+            long remainingMillis = exp != null
+                    ? exp.getTime() - System.currentTimeMillis()
+                    : expiration;
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package fr.shawiizz.plumeo.util;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Map.entry;
+
+/**
+ * MIME type detection for uploads, from the declared type, the file extension and the first bytes.
+ * <p>
+ * The tables are built once and immutable. A recognized signature wins over what the client declares,
+ * so the stored type can be trusted when serving the file; content without a signature (text, JSON, CSV)
+ * keeps the declared type. Container formats are only refined by the declared type, a DOCX being a ZIP.
+ */
+@Component
+public class MimeTypeRegistry {
+
+    public static final String OCTET_STREAM = "application/octet-stream";
+
+    /**
+     * Number of leading bytes needed to recognize every known signature.
+     */
+    public static final int SNIFF_LENGTH = 16;
+
+    private static final String ZIP = "application/zip";
+    private static final String OLE_STORAGE = "application/x-ole-storage";
+
+    private static final Map<String, String> EXTENSIONS = Map.ofEntries(
+            // Images
+            entry("jpg", "image/jpeg"),
+            entry("jpeg", "image/jpeg"),
+            entry("png", "image/png"),
+            entry("gif", "image/gif"),
+            entry("bmp", "image/bmp"),
+            entry("webp", "image/webp"),
+            entry("svg", "image/svg+xml"),
+
+            // Documents
+            entry("pdf", "application/pdf"),
+            entry("doc", "application/msword"),
+            entry("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document"),
+            entry("xls", "application/vnd.ms-excel"),
+            entry("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+            entry("ppt", "application/vnd.ms-powerpoint"),
+            entry("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation"),
+
+            // Texte
+            entry("txt", "text/plain"),
+            entry("html", "text/html"),
+            entry("css", "text/css"),
+            entry("js", "application/javascript"),
+            entry("json", "application/json"),
+            entry("xml", "application/xml"),
+
+            // Audio
+            entry("mp3", "audio/mpeg"),
+            entry("wav", "audio/wav"),
+            entry("ogg", "audio/ogg"),
+
+            // Vidéo
+            entry("mp4", "video/mp4"),
+            entry("avi", "video/x-msvideo"),
+            entry("mov", "video/quicktime"),
+
+            // Archives
+            entry("zip", ZIP),
+            entry("rar", "application/x-rar-compressed"),
+            entry("7z", "application/x-7z-compressed")
+    );
+
+    // Checked in order, the first match wins
+    private static final List<Signature> SIGNATURES = List.of(
+            new Signature("image/png", magic(0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)),
+            new Signature("image/jpeg", magic(0, 0xFF, 0xD8, 0xFF)),
+            new Signature("image/gif", magic(0, "GIF8"), magic(5, "a")),
+            // Reserved header bytes, so text starting with "BM" is not taken for an image
+            new Signature("image/bmp", magic(0, "BM"), magic(6, 0, 0, 0, 0)),
+            new Signature("image/webp", magic(0, "RIFF"), magic(8, "WEBP")),
+            new Signature("audio/wav", magic(0, "RIFF"), magic(8, "WAVE")),
+            new Signature("video/x-msvideo", magic(0, "RIFF"), magic(8, "AVI ")),
+            new Signature("application/pdf", magic(0, "%PDF-")),
+            new Signature(ZIP, magic(0, 'P', 'K', 0x03, 0x04)),
+            new Signature(OLE_STORAGE, magic(0, 0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1)),
+            new Signature("application/x-rar-compressed", magic(0, "Rar!")),
+            new Signature("application/x-7z-compressed", magic(0, '7', 'z', 0xBC, 0xAF, 0x27, 0x1C)),
+            new Signature("application/gzip", magic(0, 0x1F, 0x8B)),
+            new Signature("audio/mpeg", magic(0, "ID3")),
+            new Signature("audio/mpeg", magic(0, 0xFF, 0xFB)),
+            new Signature("audio/ogg", magic(0, "OggS")),
+            new Signature("video/quicktime", magic(4, "ftypqt  ")),
+            new Signature("video/mp4", magic(4, "ftyp"))
+    );
+
+    // Types sharing the signature of a container, accepted when declared
+    private static final Map<String, Set<String>> CONTAINED_TYPES = Map.of(
+            ZIP, Set.of(
+                    "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+                    "application/vnd.openxmlformats-officedocument.presentationml.presentation",
+                    "application/java-archive",
+                    "application/epub+zip"),
+            OLE_STORAGE, Set.of(
+                    "application/msword",
+                    "application/vnd.ms-excel",
+                    "application/vnd.ms-powerpoint")
+    );
+
+    /**
+     * Detect the type of uploaded content.
+     *
+     * @param declaredType the content type given by the client, may be null
+     * @param extension    the file extension, lower case and without the dot, may be empty
+     * @param head         the first bytes of the content, see {@link #SNIFF_LENGTH}
+     * @return the detected type, {@value #OCTET_STREAM} when nothing is known
+     */
+    public String detect(String declaredType, String extension, byte[] head) {
+        String byExtension = fromExtension(extension);
+        String declared = declaredType != null && !declaredType.isBlank() && !declaredType.equals(OCTET_STREAM)
+                ? declaredType
+                : byExtension;
+
+        String sniffed = sniff(head);
+        if (sniffed == null) {
+            return declared;
+        }
+
+        Set<String> contained = CONTAINED_TYPES.getOrDefault(sniffed, Set.of());
+        if (contained.contains(baseType(declared))) {
+            return declared;
+        }
+        if (contained.contains(byExtension)) {
+            return byExtension;
+        }
+        return sniffed;
+    }
+
+    /**
+     * Get the type registered for a file extension.
+     *
+     * @return the type, {@value #OCTET_STREAM} for unknown or missing extensions
+     */
+    public String fromExtension(String extension) {
+        if (extension == null || extension.isEmpty()) {
+            return OCTET_STREAM;
+        }
+        return EXTENSIONS.getOrDefault(extension.toLowerCase(Locale.ROOT), OCTET_STREAM);
+    }
+
+    /**
+     * Recognize content by its leading bytes.
+     *
+     * @return the type of the first matching signature, or null
+     */
+    public String sniff(byte[] head) {
+        if (head == null) {
+            return null;
+        }
+        for (Signature signature : SIGNATURES) {
+            if (signature.matches(head)) {
+                return signature.mimeType();
+            }
+        }
+        return null;
+    }
+
+    private static String baseType(String mimeType) {
+        int parameters = mimeType.indexOf(';');
+        return (parameters >= 0 ? mimeType.substring(0, parameters) : mimeType).trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Magic magic(int offset, String ascii) {
+        return new Magic(offset, ascii.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Magic magic(int offset, int... bytes) {
+        byte[] magic = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            magic[i] = (byte) bytes[i];
+        }
+        return new Magic(offset, magic);
+    }
+
+    private record Magic(int offset, byte[] bytes) {
+        boolean matches(byte[] head) {
+            if (head.length < offset + bytes.length) {
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                if (head[offset + i] != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record Signature(String mimeType, Magic... parts) {
+        boolean matches(byte[] head) {
+            for (Magic part : parts) {
+                if (!part.matches(head)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
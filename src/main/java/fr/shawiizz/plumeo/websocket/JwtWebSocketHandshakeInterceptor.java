@@ -1,6 +1,7 @@
 package fr.shawiizz.plumeo.websocket;
 
 import fr.shawiizz.plumeo.entity.User;
+import fr.shawiizz.plumeo.service.TokenRevocationService;
 import fr.shawiizz.plumeo.service.UserService;
 import fr.shawiizz.plumeo.util.JwtUtil;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +24,7 @@ public class JwtWebSocketHandshakeInterceptor implements HandshakeInterceptor {
 
     private final JwtUtil jwtUtil;
     private final UserService userService;
+    private final TokenRevocationService tokenRevocationService;
 
     @Override
     public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
@@ -49,6 +51,12 @@ public class JwtWebSocketHandshakeInterceptor implements HandshakeInterceptor {
                 return false;
             }
 
+            // Same revocation check as the HTTP filter, a logout or password change closes both doors
+            if (tokenRevocationService.isRevoked(userId, jwtUtil.extractTokenVersion(token))) {
+                log.warn("WebSocket handshake failed: Revoked JWT token for user ID: {}", userId);
+                return false;
+            }
+
             User user = userService.findById(userId).orElse(null);
             
             // Store user information in WebSocket session attributes
@@ -0,0 +1,4 @@
+-- Version of the tokens issued to a user, bumped to revoke them all at once.
+-- IF NOT EXISTS: databases created with ddl-auto=update may already have the column.
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS token_version INTEGER NOT NULL DEFAULT 0;
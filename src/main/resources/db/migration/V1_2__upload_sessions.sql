@@ -0,0 +1,25 @@
+-- Resumable chunked uploads: one session per upload, one row per received chunk.
+-- IF NOT EXISTS: databases created with ddl-auto=update may already have the tables.
+
+CREATE TABLE IF NOT EXISTS upload_sessions (
+    id                 VARCHAR(255) NOT NULL,
+    author_id          VARCHAR(255) NOT NULL,
+    original_file_name VARCHAR(255) NOT NULL,
+    mime_type          VARCHAR(255),
+    total_size         BIGINT       NOT NULL,
+    is_private         BOOLEAN      NOT NULL,
+    temp_path          VARCHAR(255) NOT NULL,
+    created_at         TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at         TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_upload_sessions PRIMARY KEY (id),
+    CONSTRAINT fk_upload_sessions_author FOREIGN KEY (author_id) REFERENCES users (id)
+);
+
+CREATE TABLE IF NOT EXISTS upload_session_chunks (
+    id           VARCHAR(255) NOT NULL,
+    session_id   VARCHAR(255) NOT NULL,
+    chunk_offset BIGINT       NOT NULL,
+    chunk_length BIGINT       NOT NULL,
+    created_at   TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_upload_session_chunks PRIMARY KEY (id)
+);
@@ -0,0 +1,13 @@
+-- Deduplicated, reference-counted file contents, and the checksum linking a file to its blob.
+-- IF NOT EXISTS: databases created with ddl-auto=update may already have them.
+
+ALTER TABLE files ADD COLUMN IF NOT EXISTS checksum_sha256 VARCHAR(64);
+
+CREATE TABLE IF NOT EXISTS blobs (
+    sha256       VARCHAR(64)  NOT NULL,
+    size         BIGINT       NOT NULL,
+    storage_path VARCHAR(255) NOT NULL,
+    ref_count    INTEGER      NOT NULL,
+    created_at   TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_blobs PRIMARY KEY (sha256)
+);
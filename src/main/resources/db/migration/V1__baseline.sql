@@ -0,0 +1,60 @@
+-- Schema as generated by Hibernate (ddl-auto=update) before Flyway took over.
+-- Existing databases are baselined at this version and skip it.
+
+CREATE TABLE users (
+    id                               VARCHAR(255) NOT NULL,
+    username                         VARCHAR(255) NOT NULL,
+    email                            VARCHAR(255) NOT NULL,
+    password                         VARCHAR(255) NOT NULL,
+    password_change_token            VARCHAR(255),
+    password_change_token_created_at TIMESTAMP(6) WITH TIME ZONE,
+    account_verify_token             VARCHAR(255),
+    locale                           VARCHAR(255),
+    last_login                       TIMESTAMP(6) WITH TIME ZONE,
+    created_at                       TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT pk_users PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE users_followers (
+    user_id      VARCHAR(255) NOT NULL,
+    followers_id VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_users_followers PRIMARY KEY (user_id, followers_id),
+    CONSTRAINT uk_users_followers_followers_id UNIQUE (followers_id),
+    CONSTRAINT fk_users_followers_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_users_followers_followers FOREIGN KEY (followers_id) REFERENCES users (id)
+);
+
+CREATE TABLE users_following (
+    user_id      VARCHAR(255) NOT NULL,
+    following_id VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_users_following PRIMARY KEY (user_id, following_id),
+    CONSTRAINT uk_users_following_following_id UNIQUE (following_id),
+    CONSTRAINT fk_users_following_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_users_following_following FOREIGN KEY (following_id) REFERENCES users (id)
+);
+
+CREATE TABLE users_blocked_users (
+    user_id          VARCHAR(255) NOT NULL,
+    blocked_users_id VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_users_blocked_users PRIMARY KEY (user_id, blocked_users_id),
+    CONSTRAINT uk_users_blocked_users_blocked_users_id UNIQUE (blocked_users_id),
+    CONSTRAINT fk_users_blocked_users_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_users_blocked_users_blocked_users FOREIGN KEY (blocked_users_id) REFERENCES users (id)
+);
+
+CREATE TABLE files (
+    id                 VARCHAR(255) NOT NULL,
+    author_id          VARCHAR(255) NOT NULL,
+    file_name          VARCHAR(255) NOT NULL,
+    original_file_name VARCHAR(255) NOT NULL,
+    file_path          VARCHAR(255) NOT NULL,
+    file_extension     VARCHAR(255),
+    mime_type          VARCHAR(255),
+    file_size          BIGINT,
+    is_private         BOOLEAN      NOT NULL,
+    created_at         TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at         TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT pk_files PRIMARY KEY (id),
+    CONSTRAINT fk_files_author FOREIGN KEY (author_id) REFERENCES users (id)
+);
@@ -0,0 +1,42 @@
+-- Indexes for the query shapes of the repositories.
+-- IF NOT EXISTS: databases created with ddl-auto=update may already have the listing indexes.
+
+-- FileRepository: findByAuthor, keyset listing and its filters
+CREATE INDEX IF NOT EXISTS idx_files_author_created
+    ON files (author_id, created_at DESC, id DESC);
+
+-- FileRepository: findByAuthorAndIsPrivate, listing filtered on privacy
+CREATE INDEX IF NOT EXISTS idx_files_author_private_created
+    ON files (author_id, is_private, created_at DESC, id DESC);
+
+-- FileRepository: listing filtered on MIME type
+CREATE INDEX IF NOT EXISTS idx_files_author_mime_created
+    ON files (author_id, mime_type, created_at DESC, id DESC);
+
+-- FileRepository: findByIdAndAuthor, existsByIdAndAuthor (index-only scan)
+CREATE INDEX IF NOT EXISTS idx_files_id_author
+    ON files (id, author_id);
+
+-- FileRepository: updateFilePath, when a blob moves to a new key
+CREATE INDEX IF NOT EXISTS idx_files_file_path
+    ON files (file_path);
+
+-- FileRepository: files stored before deduplication, walked by the storage migration
+CREATE INDEX IF NOT EXISTS idx_files_legacy
+    ON files (id) WHERE checksum_sha256 IS NULL;
+
+-- UserRepository.findByEmail is served by the unique constraint on users.email.
+-- User join tables: the primary keys (user_id, member) serve loading a user's collections,
+-- and the unique constraints on the member column serve reverse lookups and cascades.
+
+-- UploadSessionRepository: findByIdAndAuthor is served by the primary key
+CREATE INDEX IF NOT EXISTS idx_upload_sessions_author
+    ON upload_sessions (author_id);
+
+-- UploadSessionRepository: findByUpdatedAtBefore (abandoned session cleanup)
+CREATE INDEX IF NOT EXISTS idx_upload_sessions_updated
+    ON upload_sessions (updated_at);
+
+-- UploadChunkRepository: findBySessionIdOrderByChunkOffsetAsc, deleteBySessionId
+CREATE INDEX IF NOT EXISTS idx_upload_session_chunks_session
+    ON upload_session_chunks (session_id, chunk_offset);
@@ -0,0 +1,10 @@
+-- Integrity data of stored content, see BlobScrubber.
+-- crc32c is a fast checksum computed during upload, null for blobs stored before this migration
+-- until the scrubber or a new upload of the same content fills it in.
+ALTER TABLE blobs ADD COLUMN crc32c BIGINT;
+ALTER TABLE blobs ADD COLUMN verified_at TIMESTAMP(6) WITH TIME ZONE;
+ALTER TABLE blobs ADD COLUMN corrupted_at TIMESTAMP(6) WITH TIME ZONE;
+
+-- BlobRepository.countByCorruptedAtIsNotNull
+CREATE INDEX idx_blobs_corrupted
+    ON blobs (corrupted_at) WHERE corrupted_at IS NOT NULL;
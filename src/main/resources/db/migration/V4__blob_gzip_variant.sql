@@ -0,0 +1,3 @@
+-- Size of the precompressed gzip variant of a blob, see CompressionService.
+-- -1 when the content does not compress well enough, null when not compressed yet.
+ALTER TABLE blobs ADD COLUMN gzip_size BIGINT;
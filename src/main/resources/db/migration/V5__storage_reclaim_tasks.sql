@@ -0,0 +1,15 @@
+-- Stored objects to delete, see StorageReclaimer.
+-- Rows are written in the transaction that drops the last reference to an object, so an object is
+-- never deleted while a row still points to it, and never forgotten if the process stops meanwhile.
+CREATE TABLE storage_reclaim_tasks (
+    storage_key     VARCHAR(255)  NOT NULL,
+    attempts        INTEGER       NOT NULL,
+    next_attempt_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    last_error      VARCHAR(1000),
+    created_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_storage_reclaim_tasks PRIMARY KEY (storage_key)
+);
+
+-- StorageReclaimTaskRepository.lockDue
+CREATE INDEX idx_storage_reclaim_tasks_due
+    ON storage_reclaim_tasks (next_attempt_at);
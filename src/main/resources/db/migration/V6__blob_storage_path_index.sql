@@ -0,0 +1,3 @@
+-- StorageReclaimTaskRepository.findReferencedKeys: checked before each deletion and by the orphan sweep
+CREATE INDEX idx_blobs_storage_path
+    ON blobs (storage_path);
@@ -0,0 +1,18 @@
+-- Storage used by each user, see StorageQuotaService.
+-- Stripe 0 holds the merged total; uploads and deletions add their deltas to a random stripe above 0,
+-- so concurrent transactions of the same user rarely update the same row. Deltas are merged into
+-- stripe 0 in the background, and the usage of a user is the sum of their few rows.
+CREATE TABLE user_storage_usage (
+    user_id    VARCHAR(255) NOT NULL,
+    stripe     SMALLINT     NOT NULL,
+    used_bytes BIGINT       NOT NULL,
+    file_count BIGINT       NOT NULL,
+    CONSTRAINT pk_user_storage_usage PRIMARY KEY (user_id, stripe),
+    CONSTRAINT fk_user_storage_usage_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+-- Usage of the files uploaded so far
+INSERT INTO user_storage_usage (user_id, stripe, used_bytes, file_count)
+SELECT author_id, 0, COALESCE(SUM(file_size), 0), COUNT(*)
+FROM files
+GROUP BY author_id;
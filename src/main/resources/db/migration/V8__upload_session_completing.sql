@@ -0,0 +1,3 @@
+-- Set by the single request completing an upload session, see ChunkedUploadService.completeSession.
+-- Sessions being completed no longer accept chunks and cannot be aborted.
+ALTER TABLE upload_sessions ADD COLUMN completing BOOLEAN NOT NULL DEFAULT FALSE;
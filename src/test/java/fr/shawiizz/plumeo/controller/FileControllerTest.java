@@ -0,0 +1,68 @@
+package fr.shawiizz.plumeo.controller;
+
+import fr.shawiizz.plumeo.entity.User;
+import fr.shawiizz.plumeo.exception.GlobalExceptionHandler;
+import fr.shawiizz.plumeo.service.AuthenticationService;
+import fr.shawiizz.plumeo.service.FileService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Upload size limits, through the controller and the exception handler.
+ */
+class FileControllerTest {
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        // Files over the limit are refused before any repository, storage or quota is involved
+        FileService fileService = new FileService(null, null, null, new SimpleMeterRegistry(), null, null, null, null);
+        ReflectionTestUtils.setField(fileService, "maxFileSize", DataSize.ofKilobytes(1));
+
+        User author = new User();
+        AuthenticationService authenticationService = new AuthenticationService(null, null) {
+            @Override
+            public User getCurrentUserReference() {
+                return author;
+            }
+        };
+
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new FileController(fileService, null, authenticationService, null))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void refusesOversizedMultipartUploads() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "large.bin",
+                MediaType.APPLICATION_OCTET_STREAM_VALUE, new byte[2048]);
+
+        mockMvc.perform(multipart("/api/files/upload").file(file))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.message").value("File size exceeds maximum allowed size"));
+    }
+
+    @Test
+    void refusesOversizedStreamsFromTheirDeclaredLength() throws Exception {
+        mockMvc.perform(post("/api/files/upload/stream")
+                        .param("fileName", "large.bin")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(new byte[2048]))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.message").value("File size exceeds maximum allowed size"));
+    }
+}
@@ -0,0 +1,185 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.EmbeddedPostgresConfiguration;
+import fr.shawiizz.plumeo.config.StorageConfig;
+import fr.shawiizz.plumeo.storage.StorageBackend;
+import fr.shawiizz.plumeo.storage.StorageLayout;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Scrub passes against a real PostgreSQL and a local storage.
+ */
+@DataJpaTest(properties = "storage.scrub.rate=1GB")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BlobScrubber.class, StorageConfig.class, EmbeddedPostgresConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BlobScrubberTest {
+
+    private static final Path UPLOAD_DIR = createUploadDir();
+
+    @Autowired
+    private BlobScrubber blobScrubber;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private StorageLayout storageLayout;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) {
+        registry.add("file.upload.dir", UPLOAD_DIR::toString);
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM blobs");
+    }
+
+    @Test
+    void healthyBlobIsVerified() throws IOException {
+        byte[] content = randomContent();
+        String sha256 = store(content, content, crc32c(content));
+
+        assertEquals(1, blobScrubber.scrubNextBatch());
+
+        Map<String, Object> blob = blob(sha256);
+        assertNotNull(blob.get("verified_at"));
+        assertNull(blob.get("corrupted_at"));
+        assertEquals(crc32c(content), blob.get("crc32c"));
+        assertTrue(storageBackend.exists(storageLayout.blobKey(sha256)));
+    }
+
+    @Test
+    void corruptedBlobIsFlagged() throws IOException {
+        byte[] content = randomContent();
+        byte[] rotten = content.clone();
+        rotten[3] ^= 0x10;
+        String sha256 = store(content, rotten, crc32c(content));
+
+        blobScrubber.scrubNextBatch();
+
+        assertNotNull(blob(sha256).get("corrupted_at"));
+        // Flagged for an operator, never deleted: the row and the object stay in place
+        assertEquals(crc32c(content), blob(sha256).get("crc32c"));
+        assertTrue(storageBackend.exists(storageLayout.blobKey(sha256)));
+    }
+
+    @Test
+    void truncatedBlobIsFlagged() throws IOException {
+        byte[] content = randomContent();
+        String sha256 = store(content, new byte[content.length - 1], crc32c(content));
+
+        blobScrubber.scrubNextBatch();
+
+        assertNotNull(blob(sha256).get("corrupted_at"));
+    }
+
+    @Test
+    void missingObjectIsFlagged() throws IOException {
+        byte[] content = randomContent();
+        String sha256 = store(content, null, crc32c(content));
+
+        assertEquals(1, blobScrubber.scrubNextBatch());
+
+        assertNotNull(blob(sha256).get("corrupted_at"));
+    }
+
+    @Test
+    void legacyBlobIsCheckedAgainstItsSha256() throws IOException {
+        byte[] content = randomContent();
+        String healthy = store(content, content, null);
+        byte[] other = randomContent();
+        byte[] rotten = other.clone();
+        rotten[0] ^= 0x01;
+        String corrupted = store(other, rotten, null);
+
+        blobScrubber.scrubNextBatch();
+
+        // Le CRC32C manquant est renseigné une fois le contenu vérifié par son SHA-256
+        assertEquals(crc32c(content), blob(healthy).get("crc32c"));
+        assertNull(blob(healthy).get("corrupted_at"));
+        assertNotNull(blob(corrupted).get("corrupted_at"));
+        assertNull(blob(corrupted).get("crc32c"));
+    }
+
+    /**
+     * Record a blob of the given content and store an object for it.
+     *
+     * @param stored the object content, null to store nothing
+     * @param crc32c the recorded CRC32C, null for a blob stored before checksums
+     */
+    private String store(byte[] content, byte[] stored, Long crc32c) throws IOException {
+        String sha256 = sha256(content);
+        String key = storageLayout.blobKey(sha256);
+        if (stored != null) {
+            storageBackend.write(key, new ByteArrayInputStream(stored), stored.length);
+        }
+        jdbcTemplate.update("INSERT INTO blobs (sha256, size, storage_path, ref_count, crc32c, created_at) "
+                + "VALUES (?, ?, ?, 1, ?, ?)", sha256, content.length, key, crc32c, Timestamp.from(Instant.now()));
+        return sha256;
+    }
+
+    private Map<String, Object> blob(String sha256) {
+        return jdbcTemplate.queryForMap("SELECT crc32c, verified_at, corrupted_at FROM blobs WHERE sha256 = ?", sha256);
+    }
+
+    private static byte[] randomContent() {
+        return UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long crc32c(byte[] content) {
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Path createUploadDir() {
+        try {
+            return Files.createTempDirectory("plumeo-scrub");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.EmbeddedPostgresConfiguration;
+import fr.shawiizz.plumeo.config.StorageConfig;
+import fr.shawiizz.plumeo.dto.request.CreateUploadSessionRequest;
+import fr.shawiizz.plumeo.dto.response.FileUploadResponse;
+import fr.shawiizz.plumeo.dto.response.UploadSessionResponse;
+import fr.shawiizz.plumeo.entity.User;
+import fr.shawiizz.plumeo.repository.UploadSessionRepository;
+import fr.shawiizz.plumeo.util.MimeTypeRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Chunked uploads against a real PostgreSQL and a local storage: a session is completed exactly once.
+ */
+@DataJpaTest(properties = {
+        "storage.quota.limit=10MB",
+        "file.compression.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ChunkedUploadService.class, FileService.class, BlobStore.class, StorageReclaimer.class,
+        StorageQuotaService.class, ThumbnailService.class, CompressionService.class, HotFileCache.class,
+        MimeTypeRegistry.class, StorageConfig.class, EmbeddedPostgresConfiguration.class,
+        ChunkedUploadServiceTest.Metrics.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChunkedUploadServiceTest {
+
+    private static final Path UPLOAD_DIR = createUploadDir();
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User author;
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) {
+        registry.add("file.upload.dir", UPLOAD_DIR::toString);
+    }
+
+    @BeforeEach
+    void setUp() {
+        author = new User();
+        jdbcTemplate.update("INSERT INTO users (id, username, email, password) VALUES (?, ?, ?, ?)",
+                author.getId(), "chunked", author.getId() + "@plumeo.test", "password");
+    }
+
+    @Test
+    void completesSessionReceivedOutOfOrder() {
+        byte[] content = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+        UploadSessionResponse session = receive(content);
+
+        FileUploadResponse response = chunkedUploadService.completeSession(session.id(), author);
+
+        assertEquals((long) content.length, response.fileSize());
+        assertEquals(1, countFiles());
+        assertEquals((long) content.length, storageQuotaService.getUsage(author.getId()).usedBytes());
+        assertFalse(uploadSessionRepository.existsById(session.id()));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM upload_session_chunks WHERE session_id = ?", Integer.class, session.id()));
+        assertThrows(RuntimeException.class, () -> chunkedUploadService.completeSession(session.id(), author));
+    }
+
+    @Test
+    void concurrentCompletesStoreOneFile() throws Exception {
+        byte[] content = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+        UploadSessionResponse session = receive(content);
+
+        int threads = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        chunkedUploadService.completeSession(session.id(), author);
+                        return true;
+                    } catch (RuntimeException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int completed = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    completed++;
+                }
+            }
+            assertEquals(1, completed);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, countFiles());
+        // Facturé une seule fois
+        assertEquals((long) content.length, storageQuotaService.getUsage(author.getId()).usedBytes());
+    }
+
+    @Test
+    void sessionBeingCompletedCannotBeAbortedOrWritten() {
+        byte[] content = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+        UploadSessionResponse session = receive(content);
+
+        assertEquals(1, uploadSessionRepository.claimForCompletion(session.id(), Instant.now()));
+
+        assertThrows(RuntimeException.class, () -> chunkedUploadService.abortSession(session.id(), author));
+        assertThrows(RuntimeException.class, () -> chunkedUploadService.writeChunk(session.id(), author, 0,
+                new ByteArrayInputStream(content)));
+        assertThrows(RuntimeException.class, () -> chunkedUploadService.completeSession(session.id(), author));
+
+        // Une fois relâchée, la session peut de nouveau être terminée
+        uploadSessionRepository.releaseCompletion(session.id());
+        chunkedUploadService.completeSession(session.id(), author);
+        assertEquals(1, countFiles());
+    }
+
+    /**
+     * Create a session and send its content in two chunks, the second half first.
+     */
+    private UploadSessionResponse receive(byte[] content) {
+        UploadSessionResponse session = chunkedUploadService.createSession(
+                new CreateUploadSessionRequest("chunked.txt", (long) content.length, "text/plain", false), author);
+        int half = content.length / 2;
+        chunkedUploadService.writeChunk(session.id(), author, half,
+                new ByteArrayInputStream(content, half, content.length - half));
+        chunkedUploadService.writeChunk(session.id(), author, 0, new ByteArrayInputStream(content, 0, half));
+        return session;
+    }
+
+    private int countFiles() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM files WHERE author_id = ?", Integer.class,
+                author.getId());
+    }
+
+    private static Path createUploadDir() {
+        try {
+            return Files.createTempDirectory("plumeo-chunked-upload");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
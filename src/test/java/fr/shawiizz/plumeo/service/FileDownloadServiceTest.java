@@ -0,0 +1,181 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.entity.File;
+import fr.shawiizz.plumeo.storage.LocalStorageBackend;
+import fr.shawiizz.plumeo.storage.StorageLayout;
+import fr.shawiizz.plumeo.util.MimeTypeRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileDownloadServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FileDownloadService downloadService;
+    private CompressionService compressionService;
+    private File file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        LocalStorageBackend storageBackend = new LocalStorageBackend(tempDir);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        HotFileCache hotFileCache = new HotFileCache(storageBackend, meterRegistry);
+        ReflectionTestUtils.setField(hotFileCache, "enabled", true);
+        ReflectionTestUtils.setField(hotFileCache, "maxSize", DataSize.ofKilobytes(64));
+        ReflectionTestUtils.setField(hotFileCache, "maxObjectSize", DataSize.ofKilobytes(1));
+        hotFileCache.init();
+
+        compressionService = new CompressionService(null, storageBackend, null, new StorageLayout(2, 2),
+                meterRegistry);
+        ReflectionTestUtils.setField(compressionService, "enabled", true);
+        ReflectionTestUtils.setField(compressionService, "minSize", DataSize.ofBytes(1));
+        ReflectionTestUtils.setField(compressionService, "maxSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(compressionService, "queueCapacity", 1);
+        compressionService.init();
+
+        downloadService = new FileDownloadService(storageBackend, meterRegistry, compressionService, hotFileCache,
+                new MimeTypeRegistry());
+        downloadService.init();
+        Files.writeString(tempDir.resolve("content.txt"), "0123456789");
+
+        file = new File();
+        file.setFilePath("content.txt");
+        file.setOriginalFileName("content.txt");
+        file.setMimeType("text/plain");
+        file.setFileSize(10L);
+        file.setCreatedAt(Instant.parse("2025-01-01T00:00:00Z"));
+    }
+
+    @Test
+    void servesWholeFileWithValidators() throws Exception {
+        MockHttpServletResponse response = stream(new MockHttpServletRequest("GET", "/"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertTrue(response.getHeader(HttpHeaders.ETAG).startsWith("\"" + file.getId()));
+    }
+
+    @Test
+    void servesSingleRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-4");
+
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("234", response.getContentAsString());
+        assertEquals("bytes 2-4/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void servesMultipleRangesAsMultipart() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,-2");
+
+        MockHttpServletResponse response = stream(request);
+        String body = response.getContentAsString(StandardCharsets.US_ASCII);
+
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges"));
+        assertTrue(body.contains("Content-Range: bytes 0-1/10\r\n\r\n01"));
+        assertTrue(body.contains("Content-Range: bytes 8-9/10\r\n\r\n89"));
+        assertEquals(body.getBytes(StandardCharsets.US_ASCII).length, response.getContentLengthLong());
+    }
+
+    @Test
+    void rejectsUnsatisfiableRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=20-30");
+
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void returnsNotModifiedForMatchingETag() throws Exception {
+        String etag = stream(new MockHttpServletRequest("GET", "/")).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void answersConditionalRequestsFromChecksumWithoutStorageAccess() throws Exception {
+        file.setChecksumSha256("84d89877f0d4041efb6bf91a16f0248f2fd573e6af05c19f96bedb9f882f7882");
+        String etag = stream(new MockHttpServletRequest("GET", "/")).getHeader(HttpHeaders.ETAG);
+        Files.delete(tempDir.resolve("content.txt"));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals("\"" + file.getChecksumSha256() + "\"", etag);
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    void servesGzipVariantWhenAccepted() throws Exception {
+        file.setChecksumSha256("84d89877f0d4041efb6bf91a16f0248f2fd573e6af05c19f96bedb9f882f7882");
+        file.setGzipSize(4L);
+        Path variant = tempDir.resolve(compressionService.variantKey(file.getChecksumSha256()));
+        Files.createDirectories(variant.getParent());
+        Files.writeString(variant, "gzip");
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8");
+        MockHttpServletResponse compressed = stream(request);
+        MockHttpServletResponse identity = stream(new MockHttpServletRequest("GET", "/"));
+
+        assertEquals("gzip", compressed.getContentAsString());
+        assertEquals("gzip", compressed.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("text/plain", compressed.getContentType());
+        assertEquals("\"" + file.getChecksumSha256() + "-gzip\"", compressed.getHeader(HttpHeaders.ETAG));
+        assertEquals("0123456789", identity.getContentAsString());
+        assertNull(identity.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, identity.getHeader(HttpHeaders.VARY));
+    }
+
+    @Test
+    void servesSmallFilesFromMemoryOnceCached() throws Exception {
+        stream(new MockHttpServletRequest("GET", "/"));
+        Files.delete(tempDir.resolve("content.txt"));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-4");
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("234", response.getContentAsString());
+        assertEquals("0123456789", stream(new MockHttpServletRequest("GET", "/")).getContentAsString());
+    }
+
+    private MockHttpServletResponse stream(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        downloadService.streamFile(file, false, request, response);
+        return response;
+    }
+}
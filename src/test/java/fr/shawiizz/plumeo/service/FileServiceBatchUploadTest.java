@@ -0,0 +1,184 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.EmbeddedPostgresConfiguration;
+import fr.shawiizz.plumeo.config.StorageConfig;
+import fr.shawiizz.plumeo.dto.response.BatchUploadResponse;
+import fr.shawiizz.plumeo.entity.User;
+import fr.shawiizz.plumeo.storage.StorageBackend;
+import fr.shawiizz.plumeo.storage.StorageLayout;
+import fr.shawiizz.plumeo.util.MimeTypeRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Batch uploads against a real PostgreSQL and a local storage: objects are written before the
+ * transaction, and reclaimed when it rolls back.
+ */
+@DataJpaTest(properties = {
+        "storage.quota.limit=10MB",
+        "file.compression.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({FileService.class, BlobStore.class, StorageReclaimer.class, StorageQuotaService.class,
+        ThumbnailService.class, CompressionService.class, HotFileCache.class, MimeTypeRegistry.class,
+        StorageConfig.class, EmbeddedPostgresConfiguration.class, FileServiceBatchUploadTest.Metrics.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FileServiceBatchUploadTest {
+
+    private static final Path UPLOAD_DIR = createUploadDir();
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private StorageLayout storageLayout;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User author;
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) {
+        registry.add("file.upload.dir", UPLOAD_DIR::toString);
+    }
+
+    @BeforeEach
+    void setUp() {
+        author = new User();
+        jdbcTemplate.update("INSERT INTO users (id, username, email, password) VALUES (?, ?, ?, ?)",
+                author.getId(), "batch", author.getId() + "@plumeo.test", "password");
+    }
+
+    @Test
+    void storesEveryPartInOneTransaction() {
+        String shared = UUID.randomUUID().toString();
+        BatchUploadResponse response = fileService.uploadBatch(List.of(
+                part("a.txt", shared),
+                part("b.txt", UUID.randomUUID().toString()),
+                part("c.txt", shared)), author, false);
+
+        assertEquals(3, response.uploadedCount());
+        assertEquals(0, response.failedCount());
+        assertEquals(3, countFiles());
+        // Identical parts share one blob
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT ref_count FROM blobs WHERE sha256 = ?", Integer.class, sha256(shared)));
+        assertTrue(exists(storageLayout.blobKey(sha256(shared))));
+        assertEquals(0, countReclaimTasks(storageLayout.blobKey(sha256(shared))));
+    }
+
+    @Test
+    void invalidPartFailsAlone() {
+        BatchUploadResponse response = fileService.uploadBatch(List.of(
+                part("a.txt", UUID.randomUUID().toString()),
+                new MockMultipartFile("files", "empty.txt", "text/plain", new byte[0]),
+                part("c.txt", UUID.randomUUID().toString())), author, false);
+
+        assertEquals(2, response.uploadedCount());
+        assertEquals(1, response.failedCount());
+        assertFalse(response.files().get(1).success());
+        assertEquals("File is empty", response.files().get(1).error());
+        assertEquals(2, countFiles());
+    }
+
+    @Test
+    void rolledBackBatchReclaimsWrittenObjects() {
+        // Auteur absent de la base : l'insertion des fichiers échoue et la transaction est annulée
+        User missing = new User();
+        String content = UUID.randomUUID().toString();
+        String key = storageLayout.blobKey(sha256(content));
+
+        BatchUploadResponse response = fileService.uploadBatch(List.of(
+                part("a.txt", content),
+                part("b.txt", UUID.randomUUID().toString())), missing, false);
+
+        assertEquals(0, response.uploadedCount());
+        assertEquals(2, response.failedCount());
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM blobs WHERE sha256 = ?", Integer.class, sha256(content)));
+        // Écrit avant la transaction, puis rendu au reclaimer
+        assertTrue(exists(key));
+        assertEquals(1, countReclaimTasks(key));
+    }
+
+    private MultipartFile part(String name, String content) {
+        return new MockMultipartFile("files", name, "text/plain", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int countFiles() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM files WHERE author_id = ?", Integer.class,
+                author.getId());
+    }
+
+    private int countReclaimTasks(String key) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM storage_reclaim_tasks WHERE storage_key = ?",
+                Integer.class, key);
+    }
+
+    private boolean exists(String key) {
+        try {
+            return storageBackend.exists(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String sha256(String content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Path createUploadDir() {
+        try {
+            return Files.createTempDirectory("plumeo-batch-upload");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.storage.LocalStorageBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoublePredicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HotFileCacheTest {
+
+    private static final int OBJECT_SIZE = 300;
+
+    @TempDir
+    Path tempDir;
+
+    private SimpleMeterRegistry meterRegistry;
+    private HotFileCache hotFileCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        hotFileCache = new HotFileCache(new LocalStorageBackend(tempDir), meterRegistry);
+        ReflectionTestUtils.setField(hotFileCache, "enabled", true);
+        ReflectionTestUtils.setField(hotFileCache, "maxSize", DataSize.ofBytes(1024));
+        ReflectionTestUtils.setField(hotFileCache, "maxObjectSize", DataSize.ofBytes(512));
+        hotFileCache.init();
+    }
+
+    @Test
+    void servesCachedContentWithoutReadingTheStorage() throws Exception {
+        Files.writeString(tempDir.resolve("hot.txt"), "0123456789");
+
+        ByteBuffer first = hotFileCache.get("hot.txt", 10);
+        Files.delete(tempDir.resolve("hot.txt"));
+        ByteBuffer second = hotFileCache.get("hot.txt", 10);
+
+        assertNotNull(second);
+        assertFalse(second.isDirect());
+        assertTrue(second.isReadOnly());
+        assertEquals("0123456789", StandardCharsets.UTF_8.decode(second).toString());
+        // Each caller gets its own position over the shared content
+        assertEquals(10, first.remaining());
+        assertEquals(10, awaitWeight(weight -> weight == 10));
+    }
+
+    @Test
+    void evictsToStayWithinTheMaximumWeight() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            Files.write(tempDir.resolve("object-" + i), new byte[OBJECT_SIZE]);
+            assertEquals(OBJECT_SIZE, hotFileCache.get("object-" + i, OBJECT_SIZE).remaining());
+        }
+
+        // Every write applied: what is not held anymore was evicted
+        double weight = awaitWeight(value -> value + evictedWeight() == 10 * OBJECT_SIZE);
+        assertTrue(weight <= 1024);
+        assertEquals(0, weight % OBJECT_SIZE);
+        assertEquals(10 * OBJECT_SIZE - weight, evictedWeight());
+    }
+
+    @Test
+    void skipsObjectsLargerThanTheMaximumObjectSize() throws Exception {
+        Files.write(tempDir.resolve("large"), new byte[600]);
+
+        assertNull(hotFileCache.get("large", 600));
+        assertNull(hotFileCache.getIfPresent("large"));
+        assertEquals(0, weight());
+    }
+
+    @Test
+    void neverCachesTruncatedObjects() throws Exception {
+        Files.write(tempDir.resolve("short"), new byte[100]);
+
+        assertThrows(EOFException.class, () -> hotFileCache.get("short", 200));
+        assertNull(hotFileCache.getIfPresent("short"));
+        assertEquals(0, weight());
+    }
+
+    @Test
+    void invalidateReleasesTheWeight() throws Exception {
+        Files.write(tempDir.resolve("object"), new byte[OBJECT_SIZE]);
+        hotFileCache.get("object", OBJECT_SIZE);
+        awaitWeight(weight -> weight == OBJECT_SIZE);
+
+        hotFileCache.invalidate("object");
+
+        assertNull(hotFileCache.getIfPresent("object"));
+        assertEquals(0, awaitWeight(weight -> weight == 0));
+    }
+
+    private double weight() {
+        return meterRegistry.get("plumeo.file.cache.weight").gauge().value();
+    }
+
+    private double evictedWeight() {
+        return meterRegistry.get("cache.eviction.weight").functionCounter().count();
+    }
+
+    /**
+     * The weight is only updated by Caffeine's maintenance, which runs asynchronously after writes.
+     */
+    private double awaitWeight(DoublePredicate settled) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!settled.test(weight()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return weight();
+    }
+}
@@ -0,0 +1,113 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.EmbeddedPostgresConfiguration;
+import fr.shawiizz.plumeo.exception.StorageQuotaExceededException;
+import fr.shawiizz.plumeo.repository.UserStorageUsageRepository.UsageTotals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs against a real PostgreSQL, the quota relying on its locking.
+ */
+@DataJpaTest(properties = {
+        "storage.quota.enabled=true",
+        "storage.quota.limit=10MB",
+        "storage.quota.stripes=4",
+        "storage.quota.lock-margin=4MB"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({StorageQuotaService.class, EmbeddedPostgresConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StorageQuotaServiceTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = UUID.randomUUID().toString();
+        jdbcTemplate.update("INSERT INTO users (id, username, email, password) VALUES (?, ?, ?, ?)",
+                userId, "quota", userId + "@plumeo.test", "password");
+    }
+
+    @Test
+    void concurrentChargesNeverExceedTheQuota() throws Exception {
+        // Sans verrou tant qu'il reste plus que la marge, puis chaque envoi est vérifié sous verrou
+        transactionTemplate.executeWithoutResult(status -> storageQuotaService.charge(userId, 6 * MB, 6));
+
+        int uploads = 32;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>(uploads);
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < uploads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> storageQuotaService.charge(userId, MB, 1));
+                        return true;
+                    } catch (StorageQuotaExceededException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+        }
+
+        int charged = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(30, TimeUnit.SECONDS)) {
+                charged++;
+            }
+        }
+
+        UsageTotals usage = storageQuotaService.getUsage(userId);
+        assertEquals(4, charged);
+        assertEquals(10 * MB, usage.usedBytes());
+        assertEquals(10, usage.fileCount());
+    }
+
+    @Test
+    void refundsFreeTheQuotaAcrossMerges() {
+        transactionTemplate.executeWithoutResult(status -> storageQuotaService.charge(userId, 8 * MB, 2));
+        storageQuotaService.mergeScheduled();
+
+        assertThrows(StorageQuotaExceededException.class, () -> transactionTemplate.executeWithoutResult(status ->
+                storageQuotaService.charge(userId, 4 * MB, 1)));
+
+        transactionTemplate.executeWithoutResult(status -> storageQuotaService.refund(userId, 4 * MB, 1));
+        transactionTemplate.executeWithoutResult(status -> storageQuotaService.charge(userId, 4 * MB, 1));
+
+        assertEquals(2 * MB, storageQuotaService.getRemaining(userId));
+        assertEquals(2, storageQuotaService.getUsage(userId).fileCount());
+    }
+}
@@ -0,0 +1,127 @@
+package fr.shawiizz.plumeo.service;
+
+import fr.shawiizz.plumeo.entity.File;
+import fr.shawiizz.plumeo.storage.LocalStorageBackend;
+import fr.shawiizz.plumeo.storage.StorageLayout;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThumbnailServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LocalStorageBackend storageBackend;
+    private ThumbnailService thumbnailService;
+    private File file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        storageBackend = new LocalStorageBackend(tempDir);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        HotFileCache hotFileCache = new HotFileCache(storageBackend, meterRegistry);
+        ReflectionTestUtils.setField(hotFileCache, "maxSize", DataSize.ofMegabytes(1));
+        hotFileCache.init();
+        thumbnailService = new ThumbnailService(storageBackend, new StorageLayout(2, 2), meterRegistry, hotFileCache);
+        ReflectionTestUtils.setField(thumbnailService, "sizes", List.of(256, 128));
+        ReflectionTestUtils.setField(thumbnailService, "workers", 1);
+        ReflectionTestUtils.setField(thumbnailService, "queueCapacity", 1);
+        ReflectionTestUtils.setField(thumbnailService, "maxSourcePixels", 10_000_000L);
+        ReflectionTestUtils.setField(thumbnailService, "quality", 0.8f);
+        ReflectionTestUtils.setField(thumbnailService, "failureTtl", Duration.ofMinutes(1));
+        thumbnailService.init();
+
+        Files.createDirectories(tempDir.resolve("blobs"));
+        ImageIO.write(new BufferedImage(1200, 600, BufferedImage.TYPE_INT_ARGB), "png",
+                tempDir.resolve("blobs/original.png").toFile());
+
+        file = new File();
+        file.setFilePath("blobs/original.png");
+        file.setMimeType("image/png");
+        file.setChecksumSha256("3fa2c0ffee3fa2c0ffee3fa2c0ffee3fa2c0ffee3fa2c0ffee3fa2c0ffee3fa2");
+    }
+
+    @AfterEach
+    void tearDown() {
+        thumbnailService.shutdown();
+    }
+
+    @Test
+    void queuesMissingThumbnailsOnRequest() throws Exception {
+        int size = thumbnailService.resolveSize(200);
+        assertTrue(thumbnailService.getThumbnail(file, size).isEmpty());
+
+        String key = awaitThumbnail(size);
+
+        assertTrue(key.startsWith("thumbnails/3f/a2/"));
+        assertTrue(key.endsWith("-256.jpg"));
+        assertTrue(storageBackend.exists(thumbnailService.thumbnailKey(file, 128)));
+        try (InputStream in = storageBackend.read(key)) {
+            BufferedImage thumbnail = ImageIO.read(in);
+            assertEquals(256, thumbnail.getWidth());
+            assertEquals(128, thumbnail.getHeight());
+        }
+
+        thumbnailService.deleteThumbnails(file.getChecksumSha256());
+        assertFalse(storageBackend.exists(key));
+    }
+
+    @Test
+    void reportsImagesThatCannotBeDecoded() throws Exception {
+        Files.write(tempDir.resolve("blobs/original.png"), new byte[]{1, 2, 3, 4});
+
+        assertTrue(thumbnailService.getThumbnail(file, 128).isEmpty());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        RuntimeException failure = null;
+        while (failure == null && System.nanoTime() < deadline) {
+            try {
+                thumbnailService.getThumbnail(file, 128);
+                Thread.sleep(10);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        assertNotNull(failure);
+        assertFalse(storageBackend.exists(thumbnailService.thumbnailKey(file, 128)));
+    }
+
+    @Test
+    void refusesFormatsWithoutDecoder() {
+        file.setMimeType("image/svg+xml");
+
+        assertFalse(thumbnailService.supports("image/svg+xml"));
+        assertThrows(RuntimeException.class, () -> thumbnailService.getThumbnail(file, 128));
+    }
+
+    private String awaitThumbnail(int size) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        Optional<String> key = thumbnailService.getThumbnail(file, size);
+        while (key.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            key = thumbnailService.getThumbnail(file, size);
+        }
+        return key.orElseThrow();
+    }
+}
@@ -0,0 +1,309 @@
+package fr.shawiizz.plumeo.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the S3 backend against an in-memory, MinIO-like stand-in.
+ */
+class S3StorageBackendTest {
+
+    private static final int PART_SIZE = 10;
+
+    @TempDir
+    Path tempDir;
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    // Parts received by pending multipart uploads, by upload ID
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final AtomicInteger uploadIds = new AtomicInteger();
+    private volatile int failingPart;
+    private volatile int lastPartCount;
+    private volatile String lastAuthorization;
+    private HttpServer server;
+    private S3StorageBackend backend;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+
+        URI endpoint = URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+        backend = new S3StorageBackend(endpoint, "us-east-1", "plumeo", "access", "secret", PART_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void putsAndReadsObjects() throws IOException {
+        Path source = tempDir.resolve("source");
+        Files.writeString(source, "0123456789");
+
+        backend.put("blobs/abc", source);
+
+        assertFalse(Files.exists(source));
+        assertTrue(backend.exists("blobs/abc"));
+        assertEquals(10, backend.size("blobs/abc"));
+        assertEquals("0123456789", readString(backend.read("blobs/abc")));
+        assertTrue(lastAuthorization.startsWith("AWS4-HMAC-SHA256 Credential=access/"));
+        assertTrue(lastAuthorization.contains("/us-east-1/s3/aws4_request"));
+    }
+
+    @Test
+    void readsRanges() throws IOException {
+        byte[] content = "0123456789".getBytes(StandardCharsets.UTF_8);
+        backend.write("blobs/range", new ByteArrayInputStream(content), content.length);
+
+        assertEquals("345", readString(backend.read("blobs/range", 3, 3)));
+    }
+
+    @Test
+    void deletesObjects() throws IOException {
+        backend.write("blobs/gone", new ByteArrayInputStream(new byte[]{1, 2, 3}), 3);
+
+        assertTrue(backend.delete("blobs/gone"));
+        assertFalse(backend.exists("blobs/gone"));
+        assertThrows(NoSuchFileException.class, () -> backend.read("blobs/gone"));
+    }
+
+    @Test
+    void encodesKeys() throws IOException {
+        byte[] content = {42};
+        backend.write("legacy/user 1/café.txt", new ByteArrayInputStream(content), 1);
+
+        assertTrue(objects.containsKey("/plumeo/legacy/user 1/café.txt"));
+        assertArrayEquals(content, backend.read("legacy/user 1/café.txt").readAllBytes());
+    }
+
+    @Test
+    void listsObjectsPageByPage() throws IOException {
+        for (String key : List.of("blobs/a", "blobs/b", "blobs/c", "thumbnails/a-128.jpg")) {
+            backend.write(key, new ByteArrayInputStream(new byte[]{1, 2}), 2);
+        }
+
+        try (Stream<StoredObject> listed = backend.list("blobs/")) {
+            List<StoredObject> objects = listed.toList();
+            assertEquals(List.of("blobs/a", "blobs/b", "blobs/c"), objects.stream().map(StoredObject::key).toList());
+            assertEquals(2, objects.get(0).size());
+        }
+    }
+
+    @Test
+    void writesLargeObjectsInParts() throws IOException {
+        byte[] content = "0123456789abcdefghijKLMNO".getBytes(StandardCharsets.UTF_8);
+
+        backend.write("blobs/large", new ByteArrayInputStream(content), content.length);
+
+        assertArrayEquals(content, objects.get("/plumeo/blobs/large"));
+        assertEquals(3, lastPartCount);
+        assertTrue(uploads.isEmpty());
+    }
+
+    @Test
+    void putsLargeFilesInParts() throws IOException {
+        Path source = tempDir.resolve("large");
+        Files.writeString(source, "0123456789abcdefghij");
+
+        backend.put("blobs/large", source);
+
+        assertFalse(Files.exists(source));
+        assertEquals("0123456789abcdefghij", readString(backend.read("blobs/large")));
+        assertEquals(2, lastPartCount);
+    }
+
+    @Test
+    void abortsMultipartUploadsWhenAPartFails() {
+        failingPart = 2;
+        byte[] content = new byte[25];
+
+        assertThrows(IOException.class,
+                () -> backend.write("blobs/failed", new ByteArrayInputStream(content), content.length));
+
+        assertFalse(objects.containsKey("/plumeo/blobs/failed"));
+        assertTrue(uploads.isEmpty());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        lastAuthorization = exchange.getRequestHeaders().getFirst("Authorization");
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null && (query.startsWith("uploads") || query.contains("uploadId="))) {
+            multipart(exchange, path, parameters(query));
+            return;
+        }
+        if (query != null) {
+            list(exchange);
+            return;
+        }
+        byte[] object = objects.get(path);
+
+        switch (exchange.getRequestMethod()) {
+            case "PUT" -> {
+                try (InputStream in = exchange.getRequestBody()) {
+                    objects.put(path, in.readAllBytes());
+                }
+                exchange.sendResponseHeaders(200, -1);
+            }
+            case "HEAD" -> {
+                if (object == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else {
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.length));
+                    exchange.sendResponseHeaders(200, -1);
+                }
+            }
+            case "DELETE" -> {
+                objects.remove(path);
+                exchange.sendResponseHeaders(204, -1);
+            }
+            case "GET" -> {
+                if (object == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    break;
+                }
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                int status = 200;
+                if (range != null) {
+                    String[] bounds = range.substring("bytes=".length()).split("-");
+                    object = Arrays.copyOfRange(object, Integer.parseInt(bounds[0]), Integer.parseInt(bounds[1]) + 1);
+                    status = 206;
+                }
+                exchange.sendResponseHeaders(status, object.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(object);
+                }
+            }
+            default -> exchange.sendResponseHeaders(405, -1);
+        }
+        exchange.close();
+    }
+
+    /**
+     * CreateMultipartUpload, UploadPart, CompleteMultipartUpload and AbortMultipartUpload.
+     */
+    private void multipart(HttpExchange exchange, String path, Map<String, String> parameters) throws IOException {
+        String uploadId = parameters.get("uploadId");
+        switch (exchange.getRequestMethod()) {
+            case "POST" -> {
+                if (uploadId == null) {
+                    uploadId = "upload-" + uploadIds.incrementAndGet();
+                    uploads.put(uploadId, new ConcurrentHashMap<>());
+                    respond(exchange, "<InitiateMultipartUploadResult><UploadId>" + uploadId
+                            + "</UploadId></InitiateMultipartUploadResult>");
+                    return;
+                }
+                Map<Integer, byte[]> parts = uploads.remove(uploadId);
+                ByteArrayOutputStream object = new ByteArrayOutputStream();
+                parts.keySet().stream().sorted().forEach(partNumber -> object.writeBytes(parts.get(partNumber)));
+                objects.put(path, object.toByteArray());
+                lastPartCount = parts.size();
+                respond(exchange, "<CompleteMultipartUploadResult></CompleteMultipartUploadResult>");
+                return;
+            }
+            case "PUT" -> {
+                int partNumber = Integer.parseInt(parameters.get("partNumber"));
+                try (InputStream in = exchange.getRequestBody()) {
+                    byte[] part = in.readAllBytes();
+                    if (partNumber == failingPart) {
+                        exchange.sendResponseHeaders(500, -1);
+                    } else {
+                        uploads.get(uploadId).put(partNumber, part);
+                        exchange.getResponseHeaders().set("ETag", "\"etag-" + partNumber + "\"");
+                        exchange.sendResponseHeaders(200, -1);
+                    }
+                }
+            }
+            case "DELETE" -> {
+                uploads.remove(uploadId);
+                exchange.sendResponseHeaders(204, -1);
+            }
+            default -> exchange.sendResponseHeaders(405, -1);
+        }
+        exchange.close();
+    }
+
+    /**
+     * ListObjectsV2, two keys per page.
+     */
+    private void list(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = parameters(exchange.getRequestURI().getQuery());
+        String bucketPath = "/plumeo/";
+        List<String> keys = objects.keySet().stream()
+                .map(path -> path.substring(bucketPath.length()))
+                .filter(key -> key.startsWith(parameters.get("prefix")))
+                .sorted()
+                .toList();
+
+        int start = Integer.parseInt(parameters.getOrDefault("continuation-token", "0"));
+        int end = Math.min(start + 2, keys.size());
+        StringBuilder xml = new StringBuilder("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">");
+        for (String key : keys.subList(start, end)) {
+            xml.append("<Contents><Key>").append(key).append("</Key>")
+                    .append("<LastModified>2024-01-01T00:00:00.000Z</LastModified>")
+                    .append("<Size>").append(objects.get(bucketPath + key).length).append("</Size></Contents>");
+        }
+        xml.append("<IsTruncated>").append(end < keys.size()).append("</IsTruncated>");
+        if (end < keys.size()) {
+            xml.append("<NextContinuationToken>").append(end).append("</NextContinuationToken>");
+        }
+        xml.append("</ListBucketResult>");
+        respond(exchange, xml.toString());
+    }
+
+    private static Map<String, String> parameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        for (String parameter : query.split("&")) {
+            String[] pair = parameter.split("=", 2);
+            parameters.put(pair[0], pair.length > 1 ? pair[1] : "");
+        }
+        return parameters;
+    }
+
+    private static void respond(HttpExchange exchange, String xml) throws IOException {
+        byte[] body = xml.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        exchange.close();
+    }
+
+    private String readString(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package fr.shawiizz.plumeo.util;
+
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtUtilTest {
+
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtUtil, "secret", "testSecretKey12345678901234567890123456789012345678901234567890");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", 100L);
+        jwtUtil.init();
+    }
+
+    @Test
+    void validationReusesCachedVerification() {
+        String token = jwtUtil.generateTokenWithUserId("user-1");
+
+        assertEquals("user-1", jwtUtil.extractUserId(token));
+        assertTrue(jwtUtil.validateTokenWithUserId(token, "user-1"));
+
+        assertEquals(1, jwtUtil.getTokenCacheStats().missCount());
+        assertEquals(2, jwtUtil.getTokenCacheStats().hitCount());
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        String token = jwtUtil.generateTokenWithUserId("user-1");
+        String tampered = token.substring(0, token.length() - 2) + "xx";
+
+        assertThrows(JwtException.class, () -> jwtUtil.verifyToken(tampered));
+    }
+}
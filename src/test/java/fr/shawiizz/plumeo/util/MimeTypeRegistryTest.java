@@ -0,0 +1,37 @@
+package fr.shawiizz.plumeo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MimeTypeRegistryTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D};
+    private static final byte[] ZIP = {'P', 'K', 0x03, 0x04, 0x14, 0, 0, 0};
+
+    private final MimeTypeRegistry registry = new MimeTypeRegistry();
+
+    @Test
+    void signatureWinsOverDeclaredType() {
+        assertEquals("image/png", registry.detect("image/jpeg", "jpg", PNG));
+        assertEquals("image/png", registry.detect(MimeTypeRegistry.OCTET_STREAM, "", PNG));
+    }
+
+    @Test
+    void containerIsRefinedByDeclaredTypeOrExtension() {
+        assertEquals("application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+                registry.detect(null, "docx", ZIP));
+        assertEquals("application/zip", registry.detect("text/plain", "txt", ZIP));
+    }
+
+    @Test
+    void contentWithoutSignatureKeepsDeclaredType() {
+        byte[] text = "BMW fleet report".getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals("text/csv", registry.detect("text/csv", "csv", text));
+        assertEquals("text/plain", registry.detect(null, "TXT", text));
+        assertEquals(MimeTypeRegistry.OCTET_STREAM, registry.detect(null, "", text));
+    }
+}